@@ -0,0 +1,378 @@
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.analysis.utils.LazySetView;
+import pascal.taie.analysis.utils.NeighborSetView;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 构建完成后冻结的不可变PDG，以CSR格式保存依赖边。
+ * 节点编号与{@link CFG#getIndex}一致：entry为0，IR中第i条语句为i+1，exit为语句数+1。
+ * 每条边只保存起点、终点和类型（一个字节），边对象在遍历时才创建，
+ * 因此同一条边两次遍历得到的是不同的对象。
+ */
+public class FrozenPDG implements CFG<Stmt> {
+
+    private static final CFGEdge.Kind[] KINDS = CFGEdge.Kind.values();
+
+    private final IR ir;
+
+    private final Stmt entry;
+
+    private final Stmt exit;
+
+    private final int exitId;
+
+    /**
+     * 图中包含的节点
+     */
+    private final BitSet nodes;
+
+    private final int nodeCount;
+
+    /**
+     * 边按起点排序，节点u的出边编号为outOffsets[u]到outOffsets[u+1]-1
+     */
+    private final int[] outOffsets;
+
+    private final int[] sources;
+
+    private final int[] targets;
+
+    private final byte[] kinds;
+
+    /**
+     * 节点v的入边编号为inEdges[inOffsets[v]]到inEdges[inOffsets[v+1]-1]
+     */
+    private final int[] inOffsets;
+
+    private final int[] inEdges;
+
+    /**
+     * 去重后的后继和前驱，节点u的后继为succs[succOffsets[u]]到succs[succOffsets[u+1]-1]，
+     * 按编号升序排列。两个节点之间可能有多条不同类型的边，但在后继和前驱中只出现一次
+     */
+    private final int[] succOffsets;
+
+    private final int[] succs;
+
+    private final int[] predOffsets;
+
+    private final int[] preds;
+
+    /**
+     * @param nodes 图中包含的节点编号
+     * @param sources 边的起点，须按升序排列
+     * @param targets 边的终点
+     * @param kinds 边的类型，即{@link CFGEdge.Kind}的序号
+     */
+    private FrozenPDG(IR ir, Stmt entry, Stmt exit, BitSet nodes,
+                      int[] sources, int[] targets, byte[] kinds) {
+        this.ir = ir;
+        this.entry = entry;
+        this.exit = exit;
+        this.exitId = ir.getStmts().size() + 1;
+        this.nodes = nodes;
+        this.nodeCount = nodes.cardinality();
+        this.sources = sources;
+        this.targets = targets;
+        this.kinds = kinds;
+        int size = exitId + 1;
+        int edgeCount = targets.length;
+        outOffsets = new int[size + 1];
+        inOffsets = new int[size + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            outOffsets[sources[e] + 1]++;
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < size; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        inEdges = new int[edgeCount];
+        int[] cursor = new int[size];
+        System.arraycopy(inOffsets, 0, cursor, 0, size);
+        for (int i = 0; i < edgeCount; i++) {
+            inEdges[cursor[targets[i]]++] = i;
+        }
+        succOffsets = new int[size + 1];
+        succs = NeighborSetView.dedupRows(null, targets, outOffsets, succOffsets);
+        predOffsets = new int[size + 1];
+        preds = NeighborSetView.dedupRows(inEdges, sources, inOffsets, predOffsets);
+    }
+
+    /**
+     * 将构建完成的PDG冻结为紧凑的不可变表示
+     * @param pdg 只包含普通依赖边（无switch-case边和异常边）的PDG
+     */
+    public static FrozenPDG freeze(CFG<Stmt> pdg) {
+        if (pdg instanceof FrozenPDG frozen) {
+            return frozen;
+        }
+        IR ir = pdg.getIR();
+        Stmt entry = pdg.getEntry();
+        Stmt exit = pdg.getExit();
+        int exitId = ir.getStmts().size() + 1;
+        int size = exitId + 1;
+        BitSet nodes = new BitSet(size);
+        for (Stmt node : pdg) {
+            nodes.set(checkedIdOf(node, pdg, entry, exit));
+        }
+        // 构建中可能给尚未加入图的语句添加了边，这些边同样保留
+        int edgeCount = 0;
+        for (int u = 0; u < size; u++) {
+            edgeCount += pdg.getOutEdgesOf(nodeAt(u, ir, entry, exit)).size();
+        }
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        byte[] kinds = new byte[edgeCount];
+        int e = 0;
+        // 按编号升序遍历节点，边因此按起点排好序
+        for (int u = 0; u < size; u++) {
+            for (CFGEdge<Stmt> edge : pdg.getOutEdgesOf(nodeAt(u, ir, entry, exit))) {
+                if (edge.isSwitchCase() || edge.isExceptional()) {
+                    throw new IllegalArgumentException(
+                            "FrozenPDG does not support edge: " + edge);
+                }
+                sources[e] = u;
+                targets[e] = checkedIdOf(edge.target(), pdg, entry, exit);
+                kinds[e] = (byte) edge.getKind().ordinal();
+                e++;
+            }
+        }
+        return new FrozenPDG(ir, entry, exit, nodes, sources, targets, kinds);
+    }
+
+    /**
+     * 由已保存的边重建PDG，见{@link PDGStore}
+     */
+    static FrozenPDG of(IR ir, Stmt entry, Stmt exit, BitSet nodes,
+                        int[] sources, int[] targets, byte[] kinds) {
+        return new FrozenPDG(ir, entry, exit, nodes, sources, targets, kinds);
+    }
+
+    BitSet getNodeIds() {
+        return (BitSet) nodes.clone();
+    }
+
+    int getSourceOf(int edge) {
+        return sources[edge];
+    }
+
+    int getTargetOf(int edge) {
+        return targets[edge];
+    }
+
+    byte getKindOf(int edge) {
+        return kinds[edge];
+    }
+
+    /**
+     * PDG中只能包含IR中的语句以及PDG自己的entry和exit，
+     * 例如CFG的entry和exit是另外的对象，不能作为PDG的节点
+     */
+    private static int checkedIdOf(Stmt node, CFG<Stmt> pdg, Stmt entry, Stmt exit) {
+        int id = idOf(node, pdg.getIR(), entry, exit);
+        if (id < 0) {
+            throw new IllegalArgumentException("Cannot freeze PDG of "
+                    + pdg.getMethod() + ": node " + node
+                    + " is neither a statement of its IR nor its entry/exit");
+        }
+        return id;
+    }
+
+    private static int idOf(Stmt node, IR ir, Stmt entry, Stmt exit) {
+        int exitId = ir.getStmts().size() + 1;
+        if (node == entry) {
+            return 0;
+        } else if (node == exit) {
+            return exitId;
+        }
+        int index = node.getIndex();
+        return index >= 0 && index < exitId - 1 && ir.getStmt(index) == node ?
+                index + 1 : -1;
+    }
+
+    private static Stmt nodeAt(int id, IR ir, Stmt entry, Stmt exit) {
+        if (id == 0) {
+            return entry;
+        } else if (id == ir.getStmts().size() + 1) {
+            return exit;
+        }
+        return ir.getStmt(id - 1);
+    }
+
+    private int idOf(Stmt node) {
+        return idOf(node, ir, entry, exit);
+    }
+
+    private int idOfNode(Object o) {
+        return o instanceof Stmt stmt ? idOf(stmt) : -1;
+    }
+
+    private Stmt nodeAt(int id) {
+        return nodeAt(id, ir, entry, exit);
+    }
+
+    private CFGEdge<Stmt> edgeAt(int e) {
+        return new CFGEdge<>(KINDS[kinds[e]], nodeAt(sources[e]), nodeAt(targets[e]));
+    }
+
+    /**
+     * @return o是否为编号为e的边，即起点、终点和类型都相同
+     */
+    private boolean isEdge(Object o, int e) {
+        return o instanceof CFGEdge<?> edge
+                && edge.getKind().ordinal() == kinds[e]
+                && edge.source() == nodeAt(sources[e])
+                && edge.target() == nodeAt(targets[e]);
+    }
+
+    public int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    @Override
+    public IR getIR() {
+        return ir;
+    }
+
+    @Override
+    public JMethod getMethod() {
+        return ir.getMethod();
+    }
+
+    @Override
+    public Stmt getEntry() {
+        return entry;
+    }
+
+    @Override
+    public Stmt getExit() {
+        return exit;
+    }
+
+    @Override
+    public boolean isEntry(Stmt node) {
+        return node == entry;
+    }
+
+    @Override
+    public boolean isExit(Stmt node) {
+        return node == exit;
+    }
+
+    @Override
+    public int getIndex(Stmt node) {
+        return idOf(node);
+    }
+
+    @Override
+    public Stmt getNode(int index) {
+        return nodeAt(index);
+    }
+
+    @Override
+    public boolean hasNode(Stmt node) {
+        int id = idOf(node);
+        return id >= 0 && nodes.get(id);
+    }
+
+    @Override
+    public boolean hasEdge(Stmt source, Stmt target) {
+        int u = idOf(source), v = idOf(target);
+        if (u < 0 || v < 0) {
+            return false;
+        }
+        for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+            if (targets[e] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Stmt> getPredsOf(Stmt node) {
+        int v = idOf(node);
+        return v < 0 ? Set.of() : new NeighborSetView<>(preds,
+                predOffsets[v], predOffsets[v + 1], this::nodeAt, this::idOfNode);
+    }
+
+    @Override
+    public Set<CFGEdge<Stmt>> getInEdgesOf(Stmt node) {
+        int v = idOf(node);
+        return v < 0 ? Set.of() : new LazySetView<>(inEdges,
+                inOffsets[v], inOffsets[v + 1], this::edgeAt, this::isEdge);
+    }
+
+    @Override
+    public Set<Stmt> getSuccsOf(Stmt node) {
+        int u = idOf(node);
+        return u < 0 ? Set.of() : new NeighborSetView<>(succs,
+                succOffsets[u], succOffsets[u + 1], this::nodeAt, this::idOfNode);
+    }
+
+    @Override
+    public Set<CFGEdge<Stmt>> getOutEdgesOf(Stmt node) {
+        int u = idOf(node);
+        return u < 0 ? Set.of() : new LazySetView<>(null,
+                outOffsets[u], outOffsets[u + 1], this::edgeAt, this::isEdge);
+    }
+
+    @Override
+    public Set<Stmt> getNodes() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Stmt> iterator() {
+                return new Iterator<>() {
+
+                    private int next = nodes.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Stmt next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        Stmt node = nodeAt(next);
+                        next = nodes.nextSetBit(next + 1);
+                        return node;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Stmt stmt && hasNode(stmt);
+            }
+
+            @Override
+            public int size() {
+                return nodeCount;
+            }
+        };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return nodeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenPDG{" + getMethod() + "}";
+    }
+}
@@ -0,0 +1,54 @@
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.analysis.utils.HeapAliasIndex;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 堆上的数据依赖：在写字段或数组元素的语句与读取其别名位置的语句之间加入DEF_USE边。
+ * 只在方法内加边，且不区分语句的先后顺序（循环中后面的写可能被前面的读使用）。
+ * 跨方法的堆依赖边由IPDG在子图中加入，见ChoppedDefaultIPDG。
+ */
+class HeapDependence {
+
+    private HeapDependence() {
+    }
+
+    /**
+     * 先按堆位置对写语句分组，再为每条读语句查找同位置的写语句，
+     * 代价与访问堆的语句及其指向的对象数成正比
+     */
+    static void buildHeapDependenceEdge(StmtCFG pdg, HeapAliasIndex index) {
+        IR ir = pdg.getIR();
+        Map<Long, List<Stmt>> stores = Maps.newMap();
+        for (Stmt stmt : ir) {
+            if (HeapAliasIndex.isStore(stmt)) {
+                for (long location : index.getLocationsOf(stmt)) {
+                    stores.computeIfAbsent(location, __ -> new ArrayList<>()).add(stmt);
+                }
+            }
+        }
+        if (stores.isEmpty()) {
+            return;
+        }
+        for (Stmt stmt : ir) {
+            if (HeapAliasIndex.isLoad(stmt)) {
+                Set<Stmt> defs = Sets.newHybridSet();
+                for (long location : index.getLocationsOf(stmt)) {
+                    for (Stmt store : stores.getOrDefault(location, List.of())) {
+                        if (defs.add(store)) {
+                            pdg.addEdge(new CFGEdge<>(CFGEdge.Kind.DEF_USE, store, stmt));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.defuse.DefUse;
 import pascal.taie.analysis.defuse.DefUseAnalysis;
 import pascal.taie.analysis.blackcat.PDGCalculator;
+import pascal.taie.analysis.utils.CSRGraph;
+import pascal.taie.analysis.utils.HeapAliasIndex;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.stmt.Nop;
@@ -14,7 +16,6 @@ import pascal.taie.ir.stmt.Return;
 import pascal.taie.ir.stmt.Stmt;
 
 import java.io.File;
-import java.util.List;
 import java.util.Set;
 
 public class PDGBuilder extends MethodAnalysis<CFG<Stmt>> {
@@ -29,6 +30,16 @@ public class PDGBuilder extends MethodAnalysis<CFG<Stmt>> {
 
     private final File dumpDir;
 
+    /**
+     * 跨运行复用的PDG磁盘存储，未开启时为null
+     */
+    private final PDGStore store;
+
+    /**
+     * 堆别名索引，未开启堆依赖时为null
+     */
+    private final HeapAliasIndex heapIndex;
+
     public PDGBuilder(AnalysisConfig config) {
         super(config);
         isDump = getOptions().getBoolean("dump");
@@ -41,19 +52,53 @@ public class PDGBuilder extends MethodAnalysis<CFG<Stmt>> {
         } else {
             dumpDir = null;
         }
+        heapIndex = getOptions().getBoolean("heap-dependence") ?
+                HeapAliasIndex.fromWorld() : null;
+        String storeDir = getOptions().getString("pdg-store");
+        if (storeDir != null && heapIndex != null) {
+            // 堆上的依赖边取决于整个程序的指针分析结果，方法本身未变化时也可能失效
+            logger.warn("PDG store is incompatible with heap-dependence, disable it");
+            store = null;
+        } else if (storeDir != null) {
+            File dir = new File(storeDir);
+            dir.mkdirs();
+            String[] acp = World.get().getOptions().getAppClassPath()
+                    .get(0).split("\\\\|/");
+            store = PDGStore.open(new File(dir,
+                    acp[acp.length - 1] + "-pdg.pdgstore"),
+                    PDGStore.fingerprintOf(ID, World.get().getOptions().getAnalyses()));
+        } else {
+            store = null;
+        }
     }
 
     @Override
     public CFG<Stmt> analyze(IR ir) {
+        if (store != null) {
+            FrozenPDG stored = store.load(ir, new Nop(), new Nop());
+            if (stored != null) {
+                if (isDump) {
+                    CFGDumper.dumpDotFile(stored, dumpDir);
+                }
+                return stored;
+            }
+        }
         StmtCFG pdg = new StmtCFG(ir);
         pdg.setEntry(new Nop());
         pdg.setExit(new Nop());
         buildControlDependenceEdge(pdg);
         buildDataDependenceEdge(pdg);
+        if (heapIndex != null) {
+            HeapDependence.buildHeapDependenceEdge(pdg, heapIndex);
+        }
         if (isDump) {
             CFGDumper.dumpDotFile(pdg, dumpDir);
         }
-        return pdg;
+        FrozenPDG frozen = FrozenPDG.freeze(pdg);
+        if (store != null) {
+            store.save(frozen);
+        }
+        return frozen;
     }
 
     private void buildControlDependenceEdge(StmtCFG pdg) {
@@ -61,24 +106,14 @@ public class PDGBuilder extends MethodAnalysis<CFG<Stmt>> {
         CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
         PDGCalculator calculator = new PDGCalculator(cfg);
         calculator.analyse();
-        List<Integer>[] matrix = calculator.getCDG();
-
-        for (int u = 0; u < matrix.length - 1; u++) {
-            // 0: entry, length-1: exit
-            Stmt curr = cfg.getNode(u);
-            addNodeIfAbsent(pdg, curr);
-            if (u == 0) {
-                matrix[u].forEach(v -> {
-                    Stmt target = cfg.getNode(v);
-                    addNodeIfAbsent(pdg, target);
-                    pdg.addEdge(new CFGEdge<>(CFGEdge.Kind.CONTROL_DEPENDENCE, pdg.getEntry(), target));
-                });
-            } else {
-                for (int v : matrix[u]) {
-                    Stmt target = cfg.getNode(v);
-                    addNodeIfAbsent(pdg, target);
-                    pdg.addEdge(new CFGEdge<>(CFGEdge.Kind.CONTROL_DEPENDENCE, curr, target));
-                }
+        CSRGraph matrix = calculator.getCDG();
+
+        for (int u = 1; u < matrix.getNumberOfNodes(); u++) {
+            // 控制依赖图的编号为CFG中的编号加一，1为entry
+            Stmt source = toPDGNode(pdg, cfg, cfg.getNode(u - 1));
+            for (int i = matrix.begin(u); i < matrix.end(u); i++) {
+                Stmt target = toPDGNode(pdg, cfg, cfg.getNode(matrix.target(i) - 1));
+                pdg.addEdge(new CFGEdge<>(CFGEdge.Kind.CONTROL_DEPENDENCE, source, target));
             }
         }
 
@@ -90,6 +125,19 @@ public class PDGBuilder extends MethodAnalysis<CFG<Stmt>> {
         }
     }
 
+    /**
+     * CFG的entry和exit与PDG的entry和exit不是同一对象，映射为后者；其余语句加入PDG
+     */
+    private Stmt toPDGNode(StmtCFG pdg, CFG<Stmt> cfg, Stmt node) {
+        if (cfg.isEntry(node)) {
+            return pdg.getEntry();
+        } else if (cfg.isExit(node)) {
+            return pdg.getExit();
+        }
+        addNodeIfAbsent(pdg, node);
+        return node;
+    }
+
     private void addNodeIfAbsent(StmtCFG pdg, Stmt node) {
         if (!pdg.hasNode(node)) {
             pdg.addNode(node);
@@ -0,0 +1,321 @@
+package pascal.taie.analysis.graph.cfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.ExceptionEntry;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨运行复用的PDG磁盘存储，每个jar一个文件。
+ * 每条记录以方法签名为键，保存方法内容的哈希以及按语句编号记录的依赖边，
+ * 打开时将文件映射到内存并建立索引，之后读取时直接从映射区解析。
+ * 方法内容或分析选项变化时哈希随之变化，旧记录自动失效；
+ * 新记录追加到文件末尾，同一签名以最后一条记录为准，失效记录过多时在打开时压缩。
+ * <p>
+ * 哈希基于方法的IR（Tai-e不保留类的字节码），由参数、各语句的文本和异常处理表计算，
+ * 与字节码哈希一样能发现方法内容的变化，且粒度为方法。
+ * CFG的异常边还取决于cfg和throw分析的选项，这些选项通过{@link #fingerprintOf}计入指纹。
+ */
+public class PDGStore {
+
+    private static final Logger logger = LogManager.getLogger(PDGStore.class);
+
+    private static final int MAGIC = 0x50444753; // "PDGS"
+
+    /**
+     * 文件格式的版本，格式或PDG构建算法变化时递增
+     */
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+
+    private final File file;
+
+    /**
+     * 参与哈希的分析选项，例如PDG的构建方式
+     */
+    private final String fingerprint;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer mapped;
+
+    /**
+     * 方法签名到记录起始位置的索引
+     */
+    private final Map<String, Integer> index;
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong saves = new AtomicLong();
+
+    private PDGStore(File file, String fingerprint) throws IOException {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE || !hasValidHeader()) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("PDG store is too large: " + file);
+        }
+        this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.index = Maps.newConcurrentMap();
+        scan();
+        channel.position(channel.size());
+    }
+
+    /**
+     * 打开或创建存储文件，失效记录超过一半时先压缩
+     * @param file 存储文件
+     * @param fingerprint 参与哈希的分析选项
+     * @return 无法打开时返回null，此时调用者应直接构建PDG
+     */
+    public static PDGStore open(File file, String fingerprint) {
+        try {
+            PDGStore store = new PDGStore(file, fingerprint);
+            if (store.getLiveBytes() * 2 < store.mapped.capacity() - HEADER_SIZE) {
+                store.compact();
+                store.close();
+                store = new PDGStore(file, fingerprint);
+            }
+            logger.info("Opened PDG store {} with {} methods",
+                    file.getAbsolutePath(), store.index.size());
+            return store;
+        } catch (IOException e) {
+            logger.warn("Failed to open PDG store {}, PDGs will be rebuilt",
+                    file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    /**
+     * 扫描所有记录建立索引，末尾不完整的记录（例如上次运行中断）被截断
+     */
+    private void scan() throws IOException {
+        int pos = HEADER_SIZE;
+        int limit = mapped.capacity();
+        while (pos + Integer.BYTES <= limit) {
+            int length = mapped.getInt(pos);
+            int end = pos + Integer.BYTES + length;
+            if (length <= 0 || end > limit) {
+                break;
+            }
+            int keyLength = mapped.getInt(pos + Integer.BYTES);
+            byte[] key = new byte[keyLength];
+            mapped.get(pos + 2 * Integer.BYTES, key);
+            index.put(new String(key, StandardCharsets.UTF_8), pos);
+            pos = end;
+        }
+        if (pos < limit) {
+            logger.warn("Truncating incomplete records at the end of {}", file);
+            channel.truncate(pos);
+        }
+    }
+
+    /**
+     * 读取方法的PDG
+     * @param entry PDG的入口节点
+     * @param exit PDG的出口节点
+     * @return 记录不存在或已失效时返回null
+     */
+    public FrozenPDG load(IR ir, Stmt entry, Stmt exit) {
+        Integer start = index.get(keyOf(ir));
+        if (start == null) {
+            return null;
+        }
+        ByteBuffer buf = mapped.duplicate();
+        // 跳过记录长度、键长度和键
+        buf.position(start + 2 * Integer.BYTES + buf.getInt(start + Integer.BYTES));
+        if (buf.getLong() != hashOf(ir)
+                || buf.getInt() != ir.getStmts().size()) {
+            return null;
+        }
+        long[] words = new long[buf.getInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buf.getLong();
+        }
+        int edgeCount = buf.getInt();
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        byte[] kinds = new byte[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = buf.getInt();
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            targets[i] = buf.getInt();
+        }
+        buf.get(kinds);
+        loads.incrementAndGet();
+        return FrozenPDG.of(ir, entry, exit, BitSet.valueOf(words),
+                sources, targets, kinds);
+    }
+
+    /**
+     * 追加方法的PDG，写入失败时只记录警告
+     */
+    public void save(FrozenPDG pdg) {
+        IR ir = pdg.getIR();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            byte[] key = keyOf(ir).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(key.length);
+            out.write(key);
+            out.writeLong(hashOf(ir));
+            out.writeInt(ir.getStmts().size());
+            long[] words = pdg.getNodeIds().toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+            int edgeCount = pdg.getNumberOfEdges();
+            out.writeInt(edgeCount);
+            for (int i = 0; i < edgeCount; i++) {
+                out.writeInt(pdg.getSourceOf(i));
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                out.writeInt(pdg.getTargetOf(i));
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                out.writeByte(pdg.getKindOf(i));
+            }
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + bytes.size());
+            record.putInt(bytes.size()).put(bytes.toByteArray()).flip();
+            synchronized (channel) {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            saves.incrementAndGet();
+        } catch (IOException e) {
+            logger.warn("Failed to save PDG of {} to {}", ir.getMethod(), file, e);
+        }
+    }
+
+    /**
+     * @return 索引中每个签名最后一条记录的总字节数
+     */
+    private long getLiveBytes() {
+        long live = 0;
+        for (int start : index.values()) {
+            live += Integer.BYTES + mapped.getInt(start);
+        }
+        return live;
+    }
+
+    /**
+     * 只保留每个签名的最后一条记录，写入临时文件后替换原文件
+     */
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            out.write(header);
+            for (int start : index.values()) {
+                ByteBuffer record = mapped.slice(start,
+                        Integer.BYTES + mapped.getInt(start));
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Compacted PDG store {}", file.getAbsolutePath());
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close PDG store {}", file, e);
+        }
+    }
+
+    public void logStatistics() {
+        logger.info("PDG store {}: {} PDGs loaded, {} PDGs saved",
+                file.getName(), loads.get(), saves.get());
+    }
+
+    private static String keyOf(IR ir) {
+        return ir.getMethod().getSignature();
+    }
+
+    private long hashOf(IR ir) {
+        return contentHashOf(ir, fingerprint);
+    }
+
+    /**
+     * @param analysisId 使用存储的分析
+     * @param analyses 命令行中为各分析指定的选项，见Options#getAnalyses
+     * @return 存储的指纹，包括分析ID以及决定CFG异常边的cfg和throw分析的选项
+     */
+    public static String fingerprintOf(String analysisId, Map<String, String> analyses) {
+        return analysisId + ";" + CFGBuilder.ID + "=" + analyses.get(CFGBuilder.ID)
+                + ";" + ThrowAnalysis.ID + "=" + analyses.get(ThrowAnalysis.ID);
+    }
+
+    /**
+     * 方法内容的64位FNV-1a哈希，覆盖分析选项、参数、每条语句的文本，
+     * 以及异常处理表中每项的起止语句、处理语句的编号和捕获的类型
+     * @param fingerprint 参与哈希的分析选项
+     */
+    public static long contentHashOf(IR ir, String fingerprint) {
+        long hash = 0xcbf29ce484222325L;
+        hash = update(hash, fingerprint);
+        for (Var param : ir.getParams()) {
+            hash = update(hash, param.getType().getName());
+        }
+        for (Stmt stmt : ir) {
+            hash = update(hash, stmt.toString());
+        }
+        for (ExceptionEntry entry : ir.getExceptionEntries()) {
+            hash = update(hash, entry.start().getIndex() + "-" + entry.end().getIndex()
+                    + "->" + entry.handler().getIndex() + ":" + entry.catchType());
+        }
+        return hash;
+    }
+
+    private static long update(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= '\n';
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+}
@@ -1,30 +1,81 @@
 package pascal.taie.analysis.graph.cfg;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.analysis.defuse.DefUse;
 import pascal.taie.analysis.defuse.DefUseAnalysis;
 import pascal.taie.analysis.blackcat.PDGCalculator;
+import pascal.taie.analysis.utils.AdaptiveDominatorEngine;
+import pascal.taie.analysis.utils.CSRGraph;
+import pascal.taie.analysis.utils.DominatorEngine;
+import pascal.taie.analysis.utils.HeapAliasIndex;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.stmt.Return;
 import pascal.taie.ir.stmt.Stmt;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SinglePDGBuilder {
 
+    private static final Logger logger = LogManager.getLogger(SinglePDGBuilder.class);
+
+    /**
+     * 走快速路径（无分支）和完整路径的方法数
+     */
+    private static final AtomicLong fastPathCount = new AtomicLong();
+
+    private static final AtomicLong fullPathCount = new AtomicLong();
+
     public static CFG<Stmt> analyze(IR ir) {
+        return analyze(ir, AdaptiveDominatorEngine.DEFAULT);
+    }
+
+    /**
+     * @param engine 计算后支配树使用的引擎
+     */
+    public static CFG<Stmt> analyze(IR ir, DominatorEngine engine) {
+        return analyze(ir, engine, null);
+    }
+
+    /**
+     * @param store PDG的磁盘存储，其中有未失效的记录时直接读取，否则构建后写入；
+     *              为null时总是构建
+     */
+    public static CFG<Stmt> analyze(IR ir, DominatorEngine engine, PDGStore store) {
+        return analyze(ir, engine, store, null);
+    }
+
+    /**
+     * @param heapIndex 堆别名索引，不为null时加入堆上的数据依赖边
+     */
+    public static CFG<Stmt> analyze(IR ir, DominatorEngine engine, PDGStore store,
+                                    HeapAliasIndex heapIndex) {
+        if (store != null) {
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            FrozenPDG stored = store.load(ir, cfg.getEntry(), cfg.getExit());
+            if (stored != null) {
+                return stored;
+            }
+        }
         StmtCFG pdg = new StmtCFG(ir);
-        buildControlDependenceEdge(pdg);
+        buildControlDependenceEdge(pdg, engine);
         buildDataDependenceEdge(pdg);
-        return pdg;
+        if (heapIndex != null) {
+            HeapDependence.buildHeapDependenceEdge(pdg, heapIndex);
+        }
+        FrozenPDG frozen = FrozenPDG.freeze(pdg);
+        if (store != null) {
+            store.save(frozen);
+        }
+        return frozen;
     }
 
-    private static void buildControlDependenceEdge(StmtCFG pdg) {
+    private static void buildControlDependenceEdge(StmtCFG pdg, DominatorEngine engine) {
         IR ir = pdg.getIR();
         CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
-        PDGCalculator calculator = new PDGCalculator(cfg);
-        calculator.analyse();
-        List<Integer>[] matrix = calculator.getCDG();
         cfg.getNodes().forEach(stmt -> {
             if (cfg.isEntry(stmt)) {
                 pdg.setEntry(stmt);
@@ -35,16 +86,76 @@ public class SinglePDGBuilder {
             }
         });
 
-        for (int u = 1; u <= matrix.length - 1; u++) {
+        List<Stmt> chain = getStraightLineStmts(cfg);
+        if (chain != null) {
+            // 无分支的方法中所有语句都只控制依赖于entry，无需计算后支配树
+            fastPathCount.incrementAndGet();
+            chain.forEach(stmt -> pdg.addEdge(new CFGEdge<>(
+                    CFGEdge.Kind.CONTROL_DEPENDENCE, pdg.getEntry(), stmt)));
+            return;
+        }
+        fullPathCount.incrementAndGet();
+        PDGCalculator calculator = new PDGCalculator(cfg, engine);
+        calculator.analyse();
+        CSRGraph matrix = calculator.getCDG();
+
+        for (int u = 1; u <= matrix.getNumberOfNodes() - 1; u++) {
             // 1 and length-1 are entries and exits respectively
             // Basic block index in IR starts from 0 to size-1, where size+2=cfg node num
             Stmt source = (u == 1) ? pdg.getEntry() : cfg.getNode(u-1);
             CFGEdge.Kind kind = (source instanceof Return) ? CFGEdge.Kind.RETURN : CFGEdge.Kind.CONTROL_DEPENDENCE;
-            matrix[u].forEach(v -> {
-                Stmt target = cfg.getNode(v-1);
+            for (int i = matrix.begin(u); i < matrix.end(u); i++) {
+                Stmt target = cfg.getNode(matrix.target(i)-1);
                 pdg.addEdge(new CFGEdge<>(kind, source, target));
-            });
+            }
+        }
+    }
+
+    /**
+     * 判断CFG是否为entry到exit的一条链：每条语句恰有一条非异常出边，
+     * 且从entry出发能按顺序经过所有语句到达exit
+     * @return 按执行顺序排列的语句，CFG不是一条链时返回null
+     */
+    private static List<Stmt> getStraightLineStmts(CFG<Stmt> cfg) {
+        int stmtCount = cfg.getNumberOfNodes() - 2;
+        List<Stmt> chain = new ArrayList<>(stmtCount);
+        Stmt curr = cfg.getEntry();
+        while (!cfg.isExit(curr)) {
+            Set<CFGEdge<Stmt>> outEdges = cfg.getOutEdgesOf(curr);
+            if (outEdges.size() != 1) {
+                return null;
+            }
+            CFGEdge<Stmt> edge = outEdges.iterator().next();
+            if (edge.isExceptional()) {
+                return null;
+            }
+            curr = edge.target();
+            if (!cfg.isExit(curr)) {
+                chain.add(curr);
+                if (chain.size() > stmtCount) { // 存在环
+                    return null;
+                }
+            }
         }
+        return chain.size() == stmtCount ? chain : null;
+    }
+
+    public static long getFastPathCount() {
+        return fastPathCount.get();
+    }
+
+    public static long getFullPathCount() {
+        return fullPathCount.get();
+    }
+
+    public static void resetStatistics() {
+        fastPathCount.set(0);
+        fullPathCount.set(0);
+    }
+
+    public static void logStatistics() {
+        logger.info("PDG construction: {} methods took the straight-line fast path, " +
+                "{} methods took the full path", fastPathCount.get(), fullPathCount.get());
     }
 
     private static void buildDataDependenceEdge(StmtCFG pdg) {
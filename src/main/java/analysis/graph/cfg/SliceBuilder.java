@@ -5,20 +5,16 @@ import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.blackcat.SensAPIHandler;
+import pascal.taie.analysis.utils.CallSiteIndex;
+import pascal.taie.analysis.utils.MultiSourceSlicer;
+import pascal.taie.analysis.utils.SliceContext;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
-import pascal.taie.ir.exp.InvokeDynamic;
-import pascal.taie.ir.exp.InvokeExp;
-import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
-import pascal.taie.util.collection.Maps;
-import pascal.taie.util.collection.SetQueue;
 
 import java.io.File;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
+import java.util.List;
 
 public class SliceBuilder extends MethodAnalysis<CFG<Stmt>> {
 
@@ -32,10 +28,6 @@ public class SliceBuilder extends MethodAnalysis<CFG<Stmt>> {
 
     private final File dumpDir;
 
-    private static Map<Stmt, Boolean> vis;
-
-    private SensAPIHandler sensAPIHandler;
-
     public SliceBuilder(AnalysisConfig config) {
         super(config);
         isDump = getOptions().getBoolean("dump");
@@ -54,60 +46,26 @@ public class SliceBuilder extends MethodAnalysis<CFG<Stmt>> {
     public CFG<Stmt> analyze(IR ir) {
         StmtCFG slice = new StmtCFG(ir);
         CFG<Stmt> pdg = ir.getResult(PDGBuilder.ID);
-        sensAPIHandler = new SensAPIHandler();
-        Set<String> sensSig = sensAPIHandler.getSensitiveMethods();
-        vis = Maps.newMap(pdg.getNodes().size());
-        for (String target : sensSig) {
-            Stmt startNode = findInvokeInPDG(pdg, target);
-            slicing(startNode, pdg, slice);
-        }
+        List<Invoke> criteria = new CallSiteIndex(pdg.getNodes())
+                .getSensitiveCallSites(SensAPIHandler.get());
+        // 每个方法使用独立的切片上下文，方法级分析可以并发执行
+        SliceContext<Stmt> context = new MultiSourceSlicer<Stmt, CFGEdge<Stmt>>(
+                pdg::getOutEdgesOf, pdg::getInEdgesOf,
+                pdg::getIndex, pdg.getNumberOfNodes())
+                .slice(criteria, MultiSourceSlicer.UNBOUNDED, false, edge -> {
+                    if (!slice.hasEdge(edge)) {
+                        slice.addEdge(new CFGEdge<>(edge.getKind(),
+                                edge.source(), edge.target()));
+                    }
+                });
+        pdg.forEach(node -> {
+            if (context.isReached(node)) {
+                slice.addNode(node);
+            }
+        });
         if (isDump) {
             CFGDumper.dumpDotFile(slice, dumpDir);
         }
         return slice;
     }
-
-    private static void slicing(Stmt begin, CFG<Stmt> pdg, StmtCFG slice) {
-        processSlice(begin, pdg, slice, true);
-        processSlice(begin, pdg, slice, false);
-    }
-
-    private static void processSlice(Stmt begin, CFG<Stmt> pdg, StmtCFG slice, boolean isForward) {
-        Queue<Stmt> workList = new SetQueue<>();
-
-        workList.add(begin);
-        vis.put(begin, false);
-
-        while (!workList.isEmpty()) {
-            Stmt curr = workList.poll();
-            slice.addNode(curr);
-            vis.put(curr, true);
-            for (CFGEdge<Stmt> edge : (isForward ? pdg.getOutEdgesOf(curr) : pdg.getInEdgesOf(curr))) {
-                Stmt neighbor = isForward ? edge.target() : edge.source();
-                if (!slice.hasEdge(edge)) {
-                    slice.addEdge(new CFGEdge<>(edge.getKind(), isForward ? curr : neighbor, isForward ? neighbor : curr));
-                }
-                if (!vis.getOrDefault(neighbor, false)) {
-                    if (workList.contains(neighbor)) continue;
-                    workList.add(neighbor);
-                    vis.put(neighbor, false);
-                }
-            }
-        }
-    }
-
-    private static Stmt findInvokeInPDG(CFG<Stmt> pdg, String signature) {
-        for(Stmt node : pdg.getNodes()){
-            if(node instanceof Invoke invoke){
-                InvokeExp exp = invoke.getInvokeExp();
-                MethodRef ref = exp instanceof InvokeDynamic ?
-                        ((InvokeDynamic) exp).getBootstrapMethodRef():
-                        exp.getMethodRef();
-                if(ref.toString().equals(signature)){
-                    return invoke;
-                }
-            }
-        }
-        return null;
-    }
 }
@@ -6,191 +6,802 @@ import pascal.taie.analysis.graph.callgraph.CallGraph;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGEdge;
 import pascal.taie.analysis.blackcat.SensAPIHandler;
-import pascal.taie.ir.exp.InvokeDynamic;
+import pascal.taie.analysis.utils.CallSiteIndex;
+import pascal.taie.analysis.utils.HeapAliasIndex;
+import pascal.taie.analysis.utils.MultiSourceSlicer;
+import pascal.taie.analysis.utils.SliceContext;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.InvokeInstanceExp;
 import pascal.taie.ir.exp.Var;
-import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
-import pascal.taie.ir.stmt.Return;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.language.type.ClassType;
+import pascal.taie.util.Indexer;
+import pascal.taie.util.SimpleIndexer;
 import pascal.taie.util.collection.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static pascal.taie.analysis.graph.icfg.ChoppedIPDGBuilder.getPDGOf;
+import java.util.function.BooleanSupplier;
 
 class ChoppedDefaultIPDG extends AbstractICFG<JMethod, Stmt>{
 
     private static final Logger logger = LogManager.getLogger(ChoppedDefaultIPDG.class);
 
-    private final MultiMap<Stmt, ICFGEdge<Stmt>> inEdges = Maps.newMultiMap();
+    /**
+     * 切片中的节点，下标即节点编号
+     */
+    private final Stmt[] nodes;
 
-    private final MultiMap<Stmt, ICFGEdge<Stmt>> outEdges = Maps.newMultiMap();
+    private final Map<Stmt, Integer> nodeIds;
 
-    private final Map<Stmt, CFG<Stmt>> stmtToPDG = Maps.newLinkedHashMap();
+    private final JMethod[] methodOfNode;
 
-    private final MultiMap<Stmt, ICFGEdge<Stmt>> sliceInEdges = Maps.newMultiMap();
+    /**
+     * 切片中作为所在方法PDG入口和出口的节点编号，导出时无需再取PDG
+     */
+    private final BitSet entryNodes = new BitSet();
+
+    private final BitSet exitNodes = new BitSet();
 
-    private final MultiMap<Stmt, ICFGEdge<Stmt>> sliceOutEdges = Maps.newMultiMap();
+    /**
+     * 切片中的边，切片完成后冻结为CSR表示
+     */
+    private final FrozenICFGEdges edges;
+
+    /**
+     * 切片准则，即子图中所有敏感API的调用点
+     */
+    private final List<Invoke> criteria;
+
+    /**
+     * criteriaOfNode[i]表示到达编号为i的节点的切片准则，未开启归因时为null
+     */
+    private final BitSet[] criteriaOfNode;
 
-    private static Map<Stmt, Boolean> vis;
+    /**
+     * 超出预算时的降级原因，见{@link SliceBudget}，为空表示切片完整
+     */
+    private final Set<String> partialReasons = new TreeSet<>();
 
+    /**
+     * 所在构建的共享状态，提供方法的PDG
+     */
+    private final IPDGContext context;
 
-    ChoppedDefaultIPDG(CallGraph<Stmt, JMethod> callGraph, int sliceIter) {
+    /**
+     * @param callGraph 调用图子图
+     * @param sliceDepth 切片的最大依赖距离，{@link MultiSourceSlicer#UNBOUNDED}表示不限制
+     * @param attribution 是否记录到达每个切片节点的敏感API调用点
+     * @param pruning 是否只为切片可能到达的方法构建PDG，见{@link SliceScope}
+     * @param lazy 是否在切片首次访问某个方法时才展开它的依赖边，
+     *             否则在切片前构建子图的完整依赖图
+     * @param contextSensitive 是否借助摘要边做上下文敏感的两阶段切片
+     * @param context 所在构建的共享状态，其中的预算超出时降级并记录原因
+     */
+    ChoppedDefaultIPDG(CallGraph<Stmt, JMethod> callGraph, int sliceDepth,
+                       boolean attribution, boolean pruning, boolean lazy,
+                       boolean contextSensitive, IPDGContext context) {
         super(callGraph);
-        build(callGraph);
-        Set<String> sensSig = new SensAPIHandler().getSensitiveMethods();
-        vis = Maps.newMap(getNodes().size());
-        for (String target : sensSig) {
-            Stmt startNode = findInvokeInPDG(target);
-            if (startNode != null) {
-                slicing(startNode, sliceIter);
+        this.context = context;
+        SliceBudget budget = context.getBudget();
+        BooleanSupplier timeUp = budget.startTimer();
+        SensAPIHandler handler = SensAPIHandler.get();
+        Set<JMethod> scope = pruning ?
+                SliceScope.of(callGraph, sliceDepth, handler) : null;
+        if (scope != null) {
+            logger.debug("{} of {} methods are in slice scope",
+                    scope.size(), callGraph.getNumberOfMethods());
+        }
+        boolean intraOnly = budget.exceeds(callGraph, scope);
+        if (intraOnly) {
+            // 只保留包含切片准则的方法，并且不加入过程间的边
+            Set<JMethod> sensitive = Sets.newSet();
+            for (JMethod method : callGraph) {
+                if ((scope == null || scope.contains(method))
+                        && SliceScope.hasSensitiveCallSite(method, handler)) {
+                    sensitive.add(method);
+                }
+            }
+            scope = sensitive;
+            partialReasons.add(SliceBudget.SUBGRAPH_BUDGET);
+            logger.warn("Subgraph with {} methods exceeds max-subgraph-nodes,"
+                    + " fall back to intraprocedural slicing", callGraph.getNumberOfMethods());
+        }
+        DependenceGraph graph = new DependenceGraph(callGraph, scope, lazy,
+                intraOnly, budget);
+        if (lazy) {
+            // 只展开包含切片准则的方法，其余方法由切片按需展开
+            callGraph.forEach(method -> {
+                if (graph.isInScope(method)
+                        && SliceScope.hasSensitiveCallSite(method, handler)) {
+                    graph.expand(method);
+                }
+            });
+        } else {
+            // 先按调用图顺序登记所有方法的节点，使节点顺序与方法顺序一致；
+            // 登记时即构建PDG，因此登记和展开都要检查是否超时，只展开已登记的方法
+            List<JMethod> registered = new ArrayList<>();
+            if (SliceBudget.forEachWithin(callGraph, timeUp, partialReasons, method -> {
+                graph.pdgOf(method);
+                registered.add(method);
+            })) {
+                SliceBudget.forEachWithin(registered, timeUp, partialReasons,
+                        graph::expand);
             }
         }
-        inEdges.clear();
-        outEdges.clear();
-        sliceInEdges.forEach(inEdges::put);
-        sliceOutEdges.forEach(outEdges::put);
-        Map<Stmt, CFG<Stmt>> tmp = stmtToPDG.entrySet().stream()
-                .filter(entry -> vis.containsKey(entry.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        stmtToPDG.clear();
-        stmtToPDG.putAll(tmp);
+        criteria = context.getProfiler().time(IPDGProfiler.Phase.CALL_SITE_LOOKUP, () ->
+                new CallSiteIndex(graph.stmtToPDG.keySet())
+                        .getSensitiveCallSites(handler));
+        Set<ICFGEdge<Stmt>> sliceEdges = new LinkedHashSet<>();
+        SliceContext<Stmt> sliceContext = context.getProfiler().time(IPDGProfiler.Phase.SLICING, () ->
+                slicing(graph, sliceDepth, attribution, contextSensitive,
+                        sliceEdges, timeUp));
+        if (sliceContext.isTruncated()) {
+            partialReasons.add(SliceBudget.TIME_LIMIT);
+        }
+        if (graph.hasOversizedMethod) {
+            partialReasons.add(SliceBudget.METHOD_BUDGET);
+        }
+        if (lazy) {
+            logger.debug("Expanded {} of {} methods lazily",
+                    graph.expanded.size(), callGraph.getNumberOfMethods());
+        }
+        // 冻结切片结果，构建阶段的依赖图随之释放
+        nodes = graph.stmtToPDG.keySet()
+                .stream()
+                .filter(sliceContext::isReached)
+                .toArray(Stmt[]::new);
+        nodeIds = Maps.newLinkedHashMap();
+        methodOfNode = new JMethod[nodes.length];
+        criteriaOfNode = attribution ? new BitSet[nodes.length] : null;
+        for (int i = 0; i < nodes.length; i++) {
+            nodeIds.put(nodes[i], i);
+            CFG<Stmt> pdg = graph.stmtToPDG.get(nodes[i]);
+            methodOfNode[i] = pdg.getMethod();
+            if (pdg.isEntry(nodes[i])) {
+                entryNodes.set(i);
+            } else if (pdg.isExit(nodes[i])) {
+                exitNodes.set(i);
+            }
+            if (criteriaOfNode != null) {
+                criteriaOfNode[i] = sliceContext.getCriteriaOf(nodes[i]);
+            }
+        }
+        FrozenICFGEdges.Builder builder = new FrozenICFGEdges.Builder(
+                nodes, nodeIds);
+        edges = context.getProfiler().time(IPDGProfiler.Phase.EDGE_WIRING, () -> {
+            // 超时截断时，边的一端可能尚未进入切片
+            sliceEdges.forEach(edge -> {
+                if (nodeIds.containsKey(edge.source())
+                        && nodeIds.containsKey(edge.target())) {
+                    builder.addEdge(edge);
+                }
+            });
+            return builder.build();
+        });
     }
 
     /**
-     * 构建这个调用图子图的ICFG
-     * @param callGraph 调用图子图
+     * 构建阶段的依赖图，只在切片前和切片过程中使用。
+     * 以方法为单位展开：展开一个方法时加入其PDG中的边，
+     * 以及从其调用点出发的调用边和返回到其调用点之后的返回边；
+     * 开启堆依赖时，还加入与子图中其他方法之间的堆依赖边，这些边不区分调用上下文。
+     * 懒惰模式下，切片首次访问某个节点时才展开其所在方法；
+     * 访问方法的入口或出口时，还需展开其调用者，以加入调用者拥有的调用边和返回边
      */
-    private void build(CallGraph<Stmt, JMethod> callGraph) {
-        callGraph.forEach(method -> {
-            CFG<Stmt> pdg = getPDGOf(method);
-            if (pdg == null) {
+    private class DependenceGraph
+            implements MultiSourceSlicer.EdgeClassifier<Stmt, ICFGEdge<Stmt>> {
+
+        private final MultiMap<Stmt, ICFGEdge<Stmt>> inEdges = Maps.newMultiMap();
+
+        private final MultiMap<Stmt, ICFGEdge<Stmt>> outEdges = Maps.newMultiMap();
+
+        private final Map<Stmt, CFG<Stmt>> stmtToPDG = Maps.newLinkedHashMap();
+
+        /**
+         * 节点编号，切片上下文中的位图以此为下标
+         */
+        private final Indexer<Stmt> nodeIndexer = new SimpleIndexer<>();
+
+        private final CallGraph<Stmt, JMethod> callGraph;
+
+        /**
+         * 需要构建的方法，为null时构建所有方法
+         */
+        private final Set<JMethod> scope;
+
+        private final boolean lazy;
+
+        /**
+         * 子图超出规模预算时只加入过程内的边
+         */
+        private final boolean intraOnly;
+
+        private final SliceBudget budget;
+
+        /**
+         * 是否有方法因超出规模预算而没有PDG
+         */
+        private boolean hasOversizedMethod;
+
+        /**
+         * 已登记节点的方法及其PDG，PDG缺失时为null
+         */
+        private final Map<JMethod, CFG<Stmt>> pdgs = Maps.newMap();
+
+        private final Set<JMethod> expanded = Sets.newSet();
+
+        private final Set<JMethod> callersExpanded = Sets.newSet();
+
+        /**
+         * 子图中范围内方法的写堆和读堆语句，按堆位置分组，用于加入跨方法的堆依赖边；
+         * 首次展开方法时创建，未开启堆依赖时为null
+         */
+        private Map<Long, List<HeapAccess>> heapStores, heapLoads;
+
+        /**
+         * 方法的摘要，每个方法只计算一次，在其所有调用点上复用；
+         * 求解递归调用的不动点期间保存的是当前的近似值
+         */
+        private final Map<JMethod, Summary> summaries = Maps.newMap();
+
+        private DependenceGraph(CallGraph<Stmt, JMethod> callGraph,
+                                Set<JMethod> scope, boolean lazy,
+                                boolean intraOnly, SliceBudget budget) {
+            this.callGraph = callGraph;
+            this.scope = scope;
+            this.lazy = lazy;
+            this.intraOnly = intraOnly;
+            this.budget = budget;
+        }
+
+        private boolean isInScope(JMethod method) {
+            return scope == null || scope.contains(method);
+        }
+
+        /**
+         * 获取方法的PDG，并登记其所有节点，但不加入边
+         * @return 不在范围内或PDG缺失时返回null
+         */
+        private CFG<Stmt> pdgOf(JMethod method) {
+            if (!isInScope(method)) {
+                return null;
+            }
+            if (!pdgs.containsKey(method)) {
+                CFG<Stmt> pdg = context.getPDGOf(method);
+                pdgs.put(method, pdg);
+                if (pdg == null && method.getDeclaringClass().isApplication()
+                        && budget.exceeds(method)) {
+                    hasOversizedMethod = true;
+                }
+                if (pdg != null) {
+                    pdg.forEach(stmt -> {
+                        stmtToPDG.put(stmt, pdg);
+                        nodeIndexer.getIndex(stmt);
+                    });
+                }
+            }
+            return pdgs.get(method);
+        }
+
+        private void expand(JMethod method) {
+            if (expanded.add(method)) {
+                context.getProfiler().time(IPDGProfiler.Phase.EDGE_WIRING, () -> wire(method));
+            }
+        }
+
+        /**
+         * 加入方法的PDG中的边，以及从其调用点出发的调用边和返回边
+         */
+        private void wire(JMethod method) {
+            CFG<Stmt> pdg = pdgOf(method);
+            MethodWiring wiring = pdg == null ? null : context.getWiringOf(method);
+            if (wiring == null) {
 //                logger.warn("PDG of {} is absent, try to fix this" +
 //                        " by adding option: -scope REACHABLE", method);
                 return;
             }
-            pdg.forEach(stmt -> {
-                stmtToPDG.put(stmt, pdg);
-                pdg.getOutEdgesOf(stmt).forEach(edge -> {
-                    ICFGEdge<Stmt> local = new NormalEdge<>(edge); // intra control dependence
-                    outEdges.put(stmt, local);
-                    inEdges.put(edge.target(), local);
-                });
-                if (isCallSite(stmt)) {
-                    getCalleesOf(stmt).forEach(callee -> {
-                        if (getPDGOf(callee) == null) {
+            for (int i = 0; i < wiring.getNumberOfNodes(); i++) {
+                Stmt stmt = wiring.getNode(i);
+                wiring.getIntraEdgesOf(i).forEach(this::addEdge);
+                if (isCallSite(stmt) && !intraOnly) {
+                    for (JMethod callee : getCalleesOf(stmt)) {
+                        MethodWiring calleeWiring = pdgOf(callee) == null ?
+                                null : context.getWiringOf(callee);
+                        if (calleeWiring == null) {
 //                            logger.warn("PDG of {} is missing", callee);
-                            return;
+                            continue;
                         }
-                        // Add inter control dependence
-                        Stmt entry = getEntryOf(callee);
-                        CallEdge<Stmt> call = new CallEdge<>(stmt, entry, callee); // call edge表示函数入口依赖于调用该函数的语句
-                        outEdges.put(stmt, call);
-                        inEdges.put(entry, call);
-                        // 处理调用后返回的情况
-                        Stmt exit = getExitOf(callee);
-                        Set<Var> retVars = Sets.newHybridSet();
-                        Set<ClassType> exceptions = Sets.newHybridSet();
-                        // The exit node of CFG is mock, thus it is not
-                        // a real return or excepting Stmt. We need to
-                        // collect return and exception information from
-                        // the real return and excepting Stmts, and attach
-                        // them to the ReturnEdge.
-                        getPDGOf(callee).getInEdgesOf(exit).forEach(retEdge -> {
-                            if (retEdge.getKind() == CFGEdge.Kind.RETURN) {
-                                Return ret = (Return) retEdge.source();
-                                if (ret.getValue() != null) {
-                                    retVars.add(ret.getValue());
-                                }
-                            }
-                            if (retEdge.isExceptional()) {
-                                exceptions.addAll(retEdge.getExceptions());
-                            }
-                        });
-                        getReturnSitesOf(stmt).forEach(retSite -> {
-                            ReturnEdge<Stmt> ret = new ReturnEdge<>(
-                                    exit, retSite, stmt, retVars, exceptions);
-                            outEdges.put(exit, ret);
-                            inEdges.put(retSite, ret);
-                        });
-                    });
+                        wiring.getInterEdgesOf(stmt, callee, () ->
+                                        newInterEdges(pdg, stmt, callee, calleeWiring))
+                                .forEach(this::addEdge);
+                    }
+                }
+            }
+            if (context.getHeapIndex() != null && !intraOnly) {
+                wireHeap(method, wiring);
+            }
+        }
+
+        /**
+         * 加入该方法与子图中其他方法之间的堆依赖边：方法内的写语句指向别处读取同一堆位置的语句，
+         * 别处的写语句指向方法内的读语句。方法内的堆依赖边已在PDG中，
+         * 对方方法已展开时边已由其加入，不再重复
+         */
+        private void wireHeap(JMethod method, MethodWiring wiring) {
+            HeapAliasIndex heapIndex = context.getHeapIndex();
+            if (heapStores == null) {
+                indexHeapAccesses(heapIndex);
+            }
+            for (int i = 0; i < wiring.getNumberOfNodes(); i++) {
+                Stmt stmt = wiring.getNode(i);
+                boolean isStore = HeapAliasIndex.isStore(stmt);
+                if (!isStore && !HeapAliasIndex.isLoad(stmt)) {
+                    continue;
+                }
+                Map<Long, List<HeapAccess>> aliases = isStore ? heapLoads : heapStores;
+                Set<Stmt> linked = Sets.newHybridSet();
+                for (long location : heapIndex.getLocationsOf(stmt)) {
+                    for (HeapAccess alias : aliases.getOrDefault(location, List.of())) {
+                        JMethod other = alias.method();
+                        if (other != method && !expanded.contains(other)
+                                && pdgOf(other) != null && linked.add(alias.stmt())) {
+                            addEdge(isStore ? heapEdge(stmt, alias.stmt())
+                                    : heapEdge(alias.stmt(), stmt));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void indexHeapAccesses(HeapAliasIndex heapIndex) {
+            heapStores = Maps.newMap();
+            heapLoads = Maps.newMap();
+            for (JMethod method : callGraph) {
+                if (!isInScope(method) || method.isAbstract() || method.isNative()
+                        || !method.getDeclaringClass().isApplication()) {
+                    continue;
+                }
+                for (Stmt stmt : method.getIR()) {
+                    Map<Long, List<HeapAccess>> accesses =
+                            HeapAliasIndex.isStore(stmt) ? heapStores :
+                            HeapAliasIndex.isLoad(stmt) ? heapLoads : null;
+                    if (accesses != null) {
+                        for (long location : heapIndex.getLocationsOf(stmt)) {
+                            accesses.computeIfAbsent(location, __ -> new ArrayList<>())
+                                    .add(new HeapAccess(stmt, method));
+                        }
+                    }
+                }
+            }
+        }
+
+        private static ICFGEdge<Stmt> heapEdge(Stmt store, Stmt load) {
+            return new NormalEdge<>(new CFGEdge<>(CFGEdge.Kind.DEF_USE, store, load));
+        }
+
+        /**
+         * 创建从调用点到被调方法的调用边，以及从被调方法出口到调用点各后继的返回边
+         */
+        private List<ICFGEdge<Stmt>> newInterEdges(CFG<Stmt> pdg, Stmt callSite,
+                                                   JMethod callee, MethodWiring calleeWiring) {
+            List<ICFGEdge<Stmt>> edges = new ArrayList<>();
+            // Add inter control dependence
+            Stmt entry = getEntryOf(callee);
+            edges.add(new CallEdge<>(callSite, entry, callee)); // call edge表示函数入口依赖于调用该函数的语句
+            // 处理调用后返回的情况
+            Stmt exit = getExitOf(callee);
+            pdg.getSuccsOf(callSite).forEach(retSite ->
+                    edges.add(new ReturnEdge<>(exit, retSite, callSite,
+                            calleeWiring.getReturnVars(), calleeWiring.getExceptions())));
+            return edges;
+        }
+
+        /**
+         * 懒惰模式下，确保与该节点相连的边都已加入
+         */
+        private void touch(Stmt stmt) {
+            CFG<Stmt> pdg = stmtToPDG.get(stmt);
+            JMethod method = pdg.getMethod();
+            expand(method);
+            if ((pdg.isEntry(stmt) || pdg.isExit(stmt)) && !intraOnly
+                    && callersExpanded.add(method)) {
+                callGraph.getCallersOf(method).forEach(callSite ->
+                        expand(callGraph.getContainerOf(callSite)));
+            }
+        }
+
+        private Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
+            if (lazy) {
+                touch(stmt);
+            }
+            return outEdges.get(stmt);
+        }
+
+        private Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
+            if (lazy) {
+                touch(stmt);
+            }
+            return inEdges.get(stmt);
+        }
+
+        private void addEdge(ICFGEdge<Stmt> edge) {
+            outEdges.put(edge.source(), edge);
+            inEdges.put(edge.target(), edge);
+        }
+
+        @Override
+        public boolean isCallEdge(ICFGEdge<Stmt> edge) {
+            return edge instanceof CallEdge;
+        }
+
+        @Override
+        public boolean isReturnEdge(ICFGEdge<Stmt> edge) {
+            return edge instanceof ReturnEdge;
+        }
+
+        /**
+         * 有被调方法的PDG在范围内的调用点由摘要跨过，其余调用点（例如库方法）按普通语句处理
+         */
+        @Override
+        public boolean isSummarized(Stmt stmt) {
+            if (!isCallSite(stmt) || intraOnly) {
+                return false;
+            }
+            for (JMethod callee : getCalleesOf(stmt)) {
+                if (pdgOf(callee) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isActualIn(ICFGEdge<Stmt> edge) {
+            return isDefUse(edge) && isSummarized(edge.target());
+        }
+
+        @Override
+        public boolean isActualOut(ICFGEdge<Stmt> edge) {
+            return isDefUse(edge) && isSummarized(edge.source());
+        }
+
+        /**
+         * 经控制依赖到达调用点时，被调方法能正常返回才经过返回值流出边；
+         * 经数据依赖到达时，传入的变量对应的形参能到达被调方法的出口才经过
+         */
+        @Override
+        public Collection<ICFGEdge<Stmt>> getSummaryOutEdgesOf(
+                Stmt callSite, ICFGEdge<Stmt> edge) {
+            boolean activated = edge == null || activates((Invoke) callSite,
+                    isControl(edge), definedVarOf(edge));
+            if (!activated) {
+                return List.of();
+            }
+            List<ICFGEdge<Stmt>> result = new ArrayList<>();
+            getOutEdgesOf(callSite).forEach(out -> {
+                if (isDefUse(out)) {
+                    result.add(out);
                 }
             });
-        });
-    }
+            return result;
+        }
 
-    private void slicing(Stmt begin, int sliceIter) {
-        processSlice(begin, true, sliceIter);
-        processSlice(begin, false, sliceIter);
-    }
+        /**
+         * 从调用点的返回值出发时，只经过对应的形参能到达被调方法出口的实参；
+         * 从被调方法入口返回调用点或调用点本身是切片准则时，经过所有实参
+         */
+        @Override
+        public Collection<ICFGEdge<Stmt>> getSummaryInEdgesOf(
+                Stmt callSite, ICFGEdge<Stmt> edge) {
+            boolean all = edge == null || edge instanceof CallEdge;
+            List<ICFGEdge<Stmt>> result = new ArrayList<>();
+            getInEdgesOf(callSite).forEach(in -> {
+                if (isDefUse(in) && (all || activates((Invoke) callSite,
+                        false, definedVarOf(in)))) {
+                    result.add(in);
+                }
+            });
+            return result;
+        }
+
+        private static boolean isDefUse(ICFGEdge<Stmt> edge) {
+            return edge instanceof NormalEdge<Stmt> normal
+                    && normal.getCFGEdge().getKind() == CFGEdge.Kind.DEF_USE;
+        }
+
+        private static boolean isControl(ICFGEdge<Stmt> edge) {
+            return edge instanceof NormalEdge<Stmt> normal
+                    && normal.getCFGEdge().getKind() == CFGEdge.Kind.CONTROL_DEPENDENCE;
+        }
 
-    private void processSlice(Stmt begin, boolean isForward, int sliceIter) {
-        Queue<Stmt> workList = new ArrayDeque<>();
-        workList.add(begin);
-        vis.put(begin, false);
+        /**
+         * @return 沿数据依赖边传递的变量，即起点定义的变量；经返回边时为调用点接收返回值的变量
+         */
+        private static Var definedVarOf(ICFGEdge<Stmt> edge) {
+            Stmt def = edge instanceof ReturnEdge<Stmt> ret ?
+                    ret.getCallSite() : edge.source();
+            return definedVarOf(def);
+        }
+
+        private static Var definedVarOf(Stmt stmt) {
+            return stmt.getDef().orElse(null) instanceof Var var ? var : null;
+        }
+
+        /**
+         * @param control 是否经控制依赖到达调用点
+         * @param var 经数据依赖到达时传入的变量，无法确定时为null
+         * @return 到达调用点的依赖能否经某个被调方法传到返回值
+         */
+        private boolean activates(Invoke callSite, boolean control, Var var) {
+            InvokeExp exp = callSite.getInvokeExp();
+            for (JMethod callee : getCalleesOf(callSite)) {
+                if (pdgOf(callee) == null) {
+                    continue;
+                }
+                Summary summary = getSummary(callee);
+                if (control) {
+                    if (summary.returns()) {
+                        return true;
+                    }
+                    continue;
+                }
+                boolean passed = false;
+                for (int i = 0; i < exp.getArgCount(); i++) {
+                    if (exp.getArg(i) == var) {
+                        passed = true;
+                        if (summary.params().get(i)) {
+                            return true;
+                        }
+                    }
+                }
+                if (exp instanceof InvokeInstanceExp instanceExp
+                        && instanceExp.getBase() == var) {
+                    passed = true;
+                    if (summary.params().get(callee.getParamCount())) {
+                        return true;
+                    }
+                }
+                if (!passed) {
+                    // 变量不是实参，例如堆上的依赖，保守地认为能够传到返回值
+                    return true;
+                }
+            }
+            return false;
+        }
 
-        int currLevel = 0;
-        while (!workList.isEmpty() && currLevel <= sliceIter) {
-            Stmt curr = workList.poll();
-            vis.put(curr, true);
-            for (ICFGEdge<Stmt> edge : (isForward ? getOutEdgesOf(curr) : getInEdgesOf(curr))) {
-                Stmt neighbor = isForward ? edge.target() : edge.source();
-                if (isForward) { // curr --> neighbor
-                    if (!sliceInEdges.get(neighbor).contains(edge) && !sliceOutEdges.get(curr).contains(edge)) {
-                        sliceInEdges.put(neighbor, edge);
-                        sliceOutEdges.put(curr, edge);
+        private Summary getSummary(JMethod method) {
+            Summary summary = summaries.get(method);
+            if (summary == null) {
+                solveSummaries(method);
+                summary = summaries.get(method);
+            }
+            return summary;
+        }
+
+        /**
+         * 以工作表求解method及其经调用点可达、尚无摘要的方法的摘要。
+         * 摘要从“不返回、没有形参能到达出口”开始单调增长，
+         * 某个方法的摘要变化后重新计算其在本次求解范围内的调用者，直到不动点
+         */
+        private void solveSummaries(JMethod method) {
+            List<JMethod> methods = new ArrayList<>();
+            Deque<JMethod> stack = new ArrayDeque<>();
+            summaries.put(method, Summary.NONE);
+            methods.add(method);
+            stack.push(method);
+            while (!stack.isEmpty()) {
+                CFG<Stmt> pdg = pdgOf(stack.pop());
+                for (Stmt stmt : pdg) {
+                    if (!isCallSite(stmt)) {
+                        continue;
                     }
-                } else { // curr <-- neighbor
-                    if (!sliceInEdges.get(curr).contains(edge) && !sliceOutEdges.get(neighbor).contains(edge)) {
-                        sliceInEdges.put(curr, edge);
-                        sliceOutEdges.put(neighbor, edge);
+                    for (JMethod callee : getCalleesOf(stmt)) {
+                        if (pdgOf(callee) != null && !summaries.containsKey(callee)) {
+                            summaries.put(callee, Summary.NONE);
+                            methods.add(callee);
+                            stack.push(callee);
+                        }
                     }
                 }
-                if (!vis.getOrDefault(neighbor, false)) {
-                    if (workList.contains(neighbor)) continue;
-                    workList.add(neighbor);
-                    vis.put(neighbor, false);
+            }
+            Set<JMethod> component = new HashSet<>(methods);
+            Deque<JMethod> worklist = new ArrayDeque<>(methods);
+            Set<JMethod> inWorklist = new HashSet<>(methods);
+            while (!worklist.isEmpty()) {
+                JMethod curr = worklist.poll();
+                inWorklist.remove(curr);
+                Summary summary = computeSummary(curr);
+                if (!summary.equals(summaries.get(curr))) {
+                    summaries.put(curr, summary);
+                    callGraph.getCallersOf(curr).forEach(callSite -> {
+                        JMethod caller = callGraph.getContainerOf(callSite);
+                        if (component.contains(caller) && inWorklist.add(caller)) {
+                            worklist.add(caller);
+                        }
+                    });
+                }
+            }
+        }
+
+        /**
+         * 在方法的PDG中分别从入口和每个形参（最后一位为this）出发，判断能否到达出口
+         */
+        private Summary computeSummary(JMethod method) {
+            CFG<Stmt> pdg = pdgOf(method);
+            IR ir = pdg.getIR();
+            boolean returns = reachesExit(pdg, null);
+            BitSet params = new BitSet();
+            for (int i = 0; i <= ir.getParams().size(); i++) {
+                Var param = i < ir.getParams().size() ? ir.getParam(i) : ir.getThis();
+                if (param != null && reachesExit(pdg, param)) {
+                    params.set(i);
+                }
+            }
+            return new Summary(returns, params);
+        }
+
+        /**
+         * 沿过程内的边搜索，方法内的摘要调用点按被调方法当前的摘要决定能否经过其返回值流出边
+         * @param param 从该形参的使用处出发，为null时从入口出发
+         */
+        private boolean reachesExit(CFG<Stmt> pdg, Var param) {
+            Set<Stmt> visited = Sets.newSet();
+            Set<Stmt> activated = Sets.newSet();
+            Deque<Stmt> stack = new ArrayDeque<>();
+            if (param == null) {
+                visited.add(pdg.getEntry());
+                stack.push(pdg.getEntry());
+            } else {
+                for (Stmt stmt : pdg.getIR()) {
+                    if (stmt.getUses().contains(param)) {
+                        visited.add(stmt);
+                        stack.push(stmt);
+                        if (isSummarized(stmt) && activates((Invoke) stmt, false, param)) {
+                            activated.add(stmt);
+                        }
+                    }
                 }
             }
-            if (sliceIter != 114514) { // 切片上下文不为无穷
-                currLevel++;
+            while (!stack.isEmpty()) {
+                Stmt curr = stack.pop();
+                if (pdg.isExit(curr)) {
+                    return true;
+                }
+                boolean summarized = isSummarized(curr);
+                for (CFGEdge<Stmt> edge : pdg.getOutEdgesOf(curr)) {
+                    boolean defUse = edge.getKind() == CFGEdge.Kind.DEF_USE;
+                    if (summarized && defUse && !activated.contains(curr)) {
+                        continue;
+                    }
+                    Stmt target = edge.target();
+                    if (isSummarized(target) && !activated.contains(target)
+                            && activates((Invoke) target, !defUse,
+                            defUse ? definedVarOf(curr) : null)) {
+                        activated.add(target);
+                        // 目标已访问过时需重新展开，以经过刚被允许的返回值流出边
+                        visited.remove(target);
+                    }
+                    if (visited.add(target)) {
+                        stack.push(target);
+                    }
+                }
             }
+            return false;
+        }
+    }
+
+    /**
+     * 访问堆的语句及其所在方法
+     */
+    private record HeapAccess(Stmt stmt, JMethod method) {
+    }
+
+    /**
+     * 被调方法的摘要
+     * @param returns 入口能否到达出口，即经控制依赖到达调用点后返回值是否依赖于此
+     * @param params 能到达出口的形参，下标为形参的序号，this的下标为形参个数
+     */
+    private record Summary(boolean returns, BitSet params) {
+
+        private static final Summary NONE = new Summary(false, new BitSet());
+    }
+
+    /**
+     * 以所有敏感API调用点为准则，做一次多源的前向和后向切片
+     * @param sliceEdges 收集切片中的边，两个方向上重复接收的边只保留一次
+     */
+    private SliceContext<Stmt> slicing(DependenceGraph graph, int sliceDepth,
+                                       boolean attribution, boolean contextSensitive,
+                                       Set<ICFGEdge<Stmt>> sliceEdges,
+                                       BooleanSupplier timeUp) {
+        return new MultiSourceSlicer<Stmt, ICFGEdge<Stmt>>(
+                graph::getOutEdgesOf, graph::getInEdgesOf,
+                graph.nodeIndexer::getIndex, graph.stmtToPDG.size(),
+                contextSensitive ? graph : null)
+                .slice(criteria, sliceDepth, attribution, sliceEdges::add, timeUp);
+    }
+
+    /**
+     * @return 切片中能到达该节点（前向）或该节点能到达（后向）的敏感API调用点，
+     * 仅在开启归因时返回非空结果
+     */
+    List<Invoke> getSliceCriteriaOf(Stmt stmt) {
+        Integer id = nodeIds.get(stmt);
+        if (criteriaOfNode == null || id == null) {
+            return List.of();
+        }
+        BitSet bits = criteriaOfNode[id];
+        List<Invoke> result = new ArrayList<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.add(criteria.get(i));
         }
+        return result;
+    }
+
+    /**
+     * @return 节点是否为所在方法PDG的入口
+     */
+    boolean isMethodEntry(Stmt stmt) {
+        Integer id = nodeIds.get(stmt);
+        return id != null && entryNodes.get(id);
+    }
+
+    /**
+     * @return 节点是否为所在方法PDG的出口
+     */
+    boolean isMethodExit(Stmt stmt) {
+        Integer id = nodeIds.get(stmt);
+        return id != null && exitNodes.get(id);
+    }
+
+    /**
+     * @return 超出预算时的降级原因，切片完整时为空
+     */
+    Set<String> getPartialReasons() {
+        return Collections.unmodifiableSet(partialReasons);
+    }
+
+    int getNumberOfEdges() {
+        return edges.getNumberOfEdges();
+    }
+
+    boolean hasSliceAttribution() {
+        return criteriaOfNode != null;
     }
 
     @Override
     public Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
-        return inEdges.get(stmt);
+        Integer id = nodeIds.get(stmt);
+        return id == null ? Set.of() : edges.getInEdgesOf(id);
     }
 
     @Override
     public Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
-        return outEdges.get(stmt);
+        Integer id = nodeIds.get(stmt);
+        return id == null ? Set.of() : edges.getOutEdgesOf(id);
     }
 
     @Override
     public Stmt getEntryOf(JMethod method) {
-        return getPDGOf(method).getExit();
+        return context.getPDGOf(method).getEntry();
     }
 
     @Override
     public Stmt getExitOf(JMethod method) {
-        return getPDGOf(method).getExit();
+        return context.getPDGOf(method).getExit();
     }
 
     @Override
     public Set<Stmt> getReturnSitesOf(Stmt callSite) {
         assert isCallSite(callSite);
-        return stmtToPDG.get(callSite).getSuccsOf(callSite);
+        return context.getPDGOf(getContainingMethodOf(callSite)).getSuccsOf(callSite);
     }
 
     @Override
     public JMethod getContainingMethodOf(Stmt stmt) {
-        return stmtToPDG.get(stmt).getMethod();
+        return methodOfNode[nodeIds.get(stmt)];
     }
 
     @Override
@@ -200,38 +811,25 @@ class ChoppedDefaultIPDG extends AbstractICFG<JMethod, Stmt>{
 
     @Override
     public boolean hasEdge(Stmt source, Stmt target) {
-        return getOutEdgesOf(source)
-                .stream()
-                .anyMatch(edge -> edge.target().equals(target));
+        Integer u = nodeIds.get(source);
+        Integer v = nodeIds.get(target);
+        return u != null && v != null && edges.hasEdge(u, v);
     }
 
     @Override
     public Set<Stmt> getPredsOf(Stmt stmt) {
-        return Views.toMappedSet(getInEdgesOf(stmt), ICFGEdge::source);
+        Integer id = nodeIds.get(stmt);
+        return id == null ? Set.of() : edges.getPredsOf(id);
     }
 
     @Override
     public Set<Stmt> getSuccsOf(Stmt stmt) {
-        return Views.toMappedSet(getOutEdgesOf(stmt), ICFGEdge::target);
+        Integer id = nodeIds.get(stmt);
+        return id == null ? Set.of() : edges.getSuccsOf(id);
     }
 
     @Override
     public Set<Stmt> getNodes() {
-        return Collections.unmodifiableSet(stmtToPDG.keySet());
-    }
-
-    public Stmt findInvokeInPDG(String signature) {
-        for (Stmt node : getNodes()) {
-            if (node instanceof Invoke invoke) {
-                InvokeExp exp = invoke.getInvokeExp();
-                MethodRef ref = exp instanceof InvokeDynamic ?
-                        ((InvokeDynamic) exp).getBootstrapMethodRef():
-                        exp.getMethodRef();
-                if (ref.toString().equals(signature)) {
-                    return invoke;
-                }
-            }
-        }
-        return null;
+        return Collections.unmodifiableSet(nodeIds.keySet());
     }
 }
@@ -0,0 +1,287 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.graph.cfg.CFGEdge;
+import pascal.taie.analysis.utils.LazySetView;
+import pascal.taie.analysis.utils.NeighborSetView;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * 冻结的过程间依赖图的边，以CSR格式保存。
+ * 节点用整数编号，每条边只保存起点、终点和一个字节的类型，
+ * 调用边的被调方法和返回边的附加信息保存在共享的附加表中，
+ * 边对象在遍历时才创建。
+ */
+class FrozenICFGEdges {
+
+    private static final CFGEdge.Kind[] KINDS = CFGEdge.Kind.values();
+
+    /**
+     * 过程间边的类型，过程内边的类型为{@link CFGEdge.Kind}的序号
+     */
+    private static final byte CALL = -1;
+
+    private static final byte RETURN = -2;
+
+    private static final byte UNSUPPORTED = -3;
+
+    private final Stmt[] nodes;
+
+    /**
+     * 边按起点排序，节点u的出边编号为outOffsets[u]到outOffsets[u+1]-1
+     */
+    private final int[] outOffsets;
+
+    private final int[] sources;
+
+    private final int[] targets;
+
+    private final byte[] kinds;
+
+    /**
+     * 过程间边在附加表中的下标，过程内边为-1
+     */
+    private final int[] aux;
+
+    private final Object[] auxValues;
+
+    /**
+     * 节点v的入边编号为inEdges[inOffsets[v]]到inEdges[inOffsets[v+1]-1]
+     */
+    private final int[] inOffsets;
+
+    private final int[] inEdges;
+
+    /**
+     * 去重后的后继和前驱，见{@link NeighborSetView#dedupRows}
+     */
+    private final int[] succOffsets;
+
+    private final int[] succs;
+
+    private final int[] predOffsets;
+
+    private final int[] preds;
+
+    private final ToIntFunction<Object> nodeIds;
+
+    private FrozenICFGEdges(Stmt[] nodes, int[] outOffsets, int[] sources,
+                            int[] targets, byte[] kinds, int[] aux,
+                            Object[] auxValues, int[] inOffsets, int[] inEdges,
+                            ToIntFunction<Object> nodeIds) {
+        this.nodes = nodes;
+        this.outOffsets = outOffsets;
+        this.sources = sources;
+        this.targets = targets;
+        this.kinds = kinds;
+        this.aux = aux;
+        this.auxValues = auxValues;
+        this.inOffsets = inOffsets;
+        this.inEdges = inEdges;
+        this.nodeIds = nodeIds;
+        succOffsets = new int[outOffsets.length];
+        succs = NeighborSetView.dedupRows(null, targets, outOffsets, succOffsets);
+        predOffsets = new int[inOffsets.length];
+        preds = NeighborSetView.dedupRows(inEdges, sources, inOffsets, predOffsets);
+    }
+
+    int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    Set<ICFGEdge<Stmt>> getOutEdgesOf(int u) {
+        return new LazySetView<>(null, outOffsets[u], outOffsets[u + 1],
+                this::edgeAt, this::isEdge);
+    }
+
+    Set<ICFGEdge<Stmt>> getInEdgesOf(int v) {
+        return new LazySetView<>(inEdges, inOffsets[v], inOffsets[v + 1],
+                this::edgeAt, this::isEdge);
+    }
+
+    Set<Stmt> getSuccsOf(int u) {
+        return new NeighborSetView<>(succs, succOffsets[u], succOffsets[u + 1],
+                i -> nodes[i], nodeIds);
+    }
+
+    Set<Stmt> getPredsOf(int v) {
+        return new NeighborSetView<>(preds, predOffsets[v], predOffsets[v + 1],
+                i -> nodes[i], nodeIds);
+    }
+
+    boolean hasEdge(int u, int v) {
+        for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+            if (targets[e] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return o是否为编号为e的边，即起点、终点和类型都相同，
+     * 过程间边还需被调方法或返回信息相同
+     */
+    private boolean isEdge(Object o, int e) {
+        if (!(o instanceof ICFGEdge<?> edge)
+                || nodeIds.applyAsInt(edge.source()) != sources[e]
+                || nodeIds.applyAsInt(edge.target()) != targets[e]
+                || kindOf(edge) != kinds[e]) {
+            return false;
+        }
+        if (edge instanceof CallEdge<?> call) {
+            return call.getCallee().equals(auxValues[aux[e]]);
+        } else if (edge instanceof ReturnEdge<?> ret) {
+            ReturnInfo info = (ReturnInfo) auxValues[aux[e]];
+            return ret.getCallSite() == info.callSite()
+                    && ret.getReturnVars().equals(info.returnVars())
+                    && ret.getExceptions().equals(info.exceptions());
+        }
+        return true;
+    }
+
+    /**
+     * @return 边的类型，不支持的边返回{@link #UNSUPPORTED}
+     */
+    private static byte kindOf(ICFGEdge<?> edge) {
+        if (edge instanceof CallEdge<?>) {
+            return CALL;
+        } else if (edge instanceof ReturnEdge<?>) {
+            return RETURN;
+        } else if (edge instanceof NormalEdge<?> normal) {
+            return (byte) normal.getCFGEdge().getKind().ordinal();
+        }
+        return UNSUPPORTED;
+    }
+
+    private ICFGEdge<Stmt> edgeAt(int e) {
+        Stmt source = nodes[sources[e]];
+        Stmt target = nodes[targets[e]];
+        return switch (kinds[e]) {
+            case CALL -> new CallEdge<>(source, target, (JMethod) auxValues[aux[e]]);
+            case RETURN -> {
+                ReturnInfo info = (ReturnInfo) auxValues[aux[e]];
+                yield new ReturnEdge<>(source, target, info.callSite(),
+                        info.returnVars(), info.exceptions());
+            }
+            default -> new NormalEdge<>(new CFGEdge<>(KINDS[kinds[e]], source, target));
+        };
+    }
+
+    private record ReturnInfo(Stmt callSite, Set<Var> returnVars,
+                              Set<ClassType> exceptions) {
+    }
+
+    /**
+     * 收集边后一次性生成CSR表示，同一节点的出边保持加入顺序
+     */
+    static class Builder {
+
+        private final Stmt[] nodes;
+
+        private final Map<Stmt, Integer> nodeIds;
+
+        private int[] sources = new int[16];
+
+        private int[] targets = new int[16];
+
+        private byte[] kinds = new byte[16];
+
+        private int[] aux = new int[16];
+
+        private int edgeCount;
+
+        private final List<Object> auxValues = new ArrayList<>();
+
+        private final Map<Object, Integer> auxIds = Maps.newMap();
+
+        /**
+         * @param nodes 编号到节点的映射
+         * @param nodeIds 节点到编号的映射
+         */
+        Builder(Stmt[] nodes, Map<Stmt, Integer> nodeIds) {
+            this.nodes = nodes;
+            this.nodeIds = nodeIds;
+        }
+
+        void addEdge(ICFGEdge<Stmt> edge) {
+            byte kind = kindOf(edge);
+            int auxId;
+            if (edge instanceof CallEdge<Stmt> call) {
+                auxId = auxIdOf(call.getCallee());
+            } else if (edge instanceof ReturnEdge<Stmt> ret) {
+                auxId = auxIdOf(new ReturnInfo(ret.getCallSite(),
+                        ret.getReturnVars(), ret.getExceptions()));
+            } else if (kind != UNSUPPORTED) {
+                auxId = -1;
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported IPDG edge: " + edge);
+            }
+            if (edgeCount == sources.length) {
+                int capacity = edgeCount * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                aux = Arrays.copyOf(aux, capacity);
+            }
+            sources[edgeCount] = nodeIds.get(edge.source());
+            targets[edgeCount] = nodeIds.get(edge.target());
+            kinds[edgeCount] = kind;
+            aux[edgeCount] = auxId;
+            edgeCount++;
+        }
+
+        private int auxIdOf(Object value) {
+            return auxIds.computeIfAbsent(value, v -> {
+                auxValues.add(v);
+                return auxValues.size() - 1;
+            });
+        }
+
+        FrozenICFGEdges build() {
+            int n = nodes.length;
+            int[] outOffsets = new int[n + 1];
+            int[] inOffsets = new int[n + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                outOffsets[sources[i] + 1]++;
+                inOffsets[targets[i] + 1]++;
+            }
+            for (int u = 0; u < n; u++) {
+                outOffsets[u + 1] += outOffsets[u];
+                inOffsets[u + 1] += inOffsets[u];
+            }
+            // 按起点做计数排序，得到CSR中的边
+            int[] cursor = Arrays.copyOf(outOffsets, n);
+            int[] csrSources = new int[edgeCount];
+            int[] csrTargets = new int[edgeCount];
+            byte[] csrKinds = new byte[edgeCount];
+            int[] csrAux = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int e = cursor[sources[i]]++;
+                csrSources[e] = sources[i];
+                csrTargets[e] = targets[i];
+                csrKinds[e] = kinds[i];
+                csrAux[e] = aux[i];
+            }
+            cursor = Arrays.copyOf(inOffsets, n);
+            int[] inEdges = new int[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                inEdges[cursor[csrTargets[e]]++] = e;
+            }
+            return new FrozenICFGEdges(nodes, outOffsets, csrSources, csrTargets,
+                    csrKinds, csrAux, auxValues.toArray(), inOffsets, inEdges,
+                    o -> nodeIds.getOrDefault(o, -1));
+        }
+    }
+}
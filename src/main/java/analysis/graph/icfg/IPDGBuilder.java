@@ -7,20 +7,41 @@ import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.blackcat.SensAPIHandler;
 import pascal.taie.analysis.graph.callgraph.CallGraph;
 import pascal.taie.analysis.graph.callgraph.CallGraphPartitioning;
-import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGEdge;
+import pascal.taie.analysis.graph.cfg.PDGStore;
 import pascal.taie.analysis.graph.cfg.SinglePDGBuilder;
+import pascal.taie.analysis.graph.cfg.SliceDumper;
+import pascal.taie.analysis.utils.AdaptiveDominatorEngine;
+import pascal.taie.analysis.utils.HeapAliasIndex;
+import pascal.taie.analysis.utils.MultiSourceSlicer;
+import pascal.taie.analysis.utils.SliceDotWriter;
 import pascal.taie.config.AnalysisConfig;
-import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.util.Indexer;
 import pascal.taie.util.SimpleIndexer;
-import pascal.taie.util.graph.DotAttributes;
-import pascal.taie.util.graph.DotDumper;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.Edge;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 public class ChoppedIPDGBuilder extends ProgramAnalysis<ICFG<JMethod, Stmt>> {
 
@@ -32,11 +53,74 @@ public class ChoppedIPDGBuilder extends ProgramAnalysis<ICFG<JMethod, Stmt>> {
 
     private static final String TEST_DIR = "chopped-ipdg-test";
 
+    private static final String UNBOUNDED = "unbounded";
+
+    private static final String MANIFEST = "slice-manifest.tsv";
+
+    private static final String STAGING_DIR = ".incremental";
+
+    private static final String ATTRIBUTION_SUFFIX = "attribution.txt";
+
+    private static final String BINARY_SUFFIX = "slice.bin";
+
+    private static final String PROFILE_FILE = "ipdg-profile.json";
+
+    private static final String PARTIAL_FILE = "partial-subgraphs.tsv";
+
+    private static final String DEDUP_FILE = "slice-dedup.tsv";
+
+    /**
+     * 旧版本中表示切片上下文为无穷的取值
+     */
+    private static final int LEGACY_UNBOUNDED = 114514;
+
     private final boolean isTest;
 
     private final boolean isDump;
 
-    private final int sliceIter;
+    /**
+     * 是否以gzip压缩导出的dot文件
+     */
+    private final boolean compressDump;
+
+    /**
+     * 是否导出dot文件和二进制文件，见{@link SliceBinaryReader}
+     */
+    private final boolean dumpDot;
+
+    private final boolean dumpBinary;
+
+    /**
+     * 是否只导出一份结构相同的切片，其余子图在slice-dedup.tsv中引用它
+     */
+    private final boolean dedup;
+
+    /**
+     * 计算切片哈希时Weisfeiler-Lehman迭代的最大轮数
+     */
+    private final int dedupIterations;
+
+    private final int sliceDepth;
+
+    private final int parallelism;
+
+    private final boolean attribution;
+
+    private final boolean pruning;
+
+    private final boolean lazy;
+
+    private final boolean contextSensitive;
+
+    /**
+     * 增量模式：复用上一次运行中未变化子图的导出文件
+     */
+    private final boolean incremental;
+
+    /**
+     * 变化的方法签名列表文件，为null时根据清单中的方法哈希判断
+     */
+    private final String changedMethodsFile;
 
     private final File dumpDir;
 
@@ -44,13 +128,113 @@ public class ChoppedIPDGBuilder extends ProgramAnalysis<ICFG<JMethod, Stmt>> {
 
     private final SensAPIHandler handler;
 
+    /**
+     * 堆别名索引，未开启堆依赖时为null
+     */
+    private final HeapAliasIndex heapIndex;
+
+    /**
+     * 各阶段的耗时和内存统计，未开启时不做统计
+     */
+    private final IPDGProfiler profiler;
+
+    /**
+     * 方法和子图的规模与时间预算
+     */
+    private final SliceBudget budget;
+
+    /**
+     * 影响PDG的分析选项，参与PDG存储和增量清单中方法内容的哈希
+     */
+    private final String pdgFingerprint;
+
+    /**
+     * 本次构建中所有子图共享的PDG缓存等状态
+     */
+    private final IPDGContext context;
+
+    /**
+     * 超出预算的子图编号及其降级原因
+     */
+    private final Map<Integer, Set<String>> partialSubgraphs = Maps.newConcurrentMap();
+
+    /**
+     * 切片哈希到哈希相同的切片的等价类，不同的等价类只是哈希冲突
+     */
+    private final Map<String, List<SliceClass>> sliceClasses = Maps.newMap();
+
+    /**
+     * 每个子图的切片哈希及所在的等价类
+     */
+    private final Map<Integer, String> sliceHashes = Maps.newConcurrentMap();
+
+    private final Map<Integer, SliceClass> classOfSubgraph = Maps.newConcurrentMap();
+
     public ChoppedIPDGBuilder(AnalysisConfig config) {
         super(config);
         isDump = getOptions().getBoolean("dump");
+        compressDump = getOptions().getBoolean("dump-compress");
+        String format = getOptions().getString("dump-format");
+        if (!List.of("dot", "binary", "both").contains(format)) {
+            throw new ConfigException("Invalid dump-format: " + format
+                    + ", expected dot, binary or both");
+        }
+        dumpDot = !format.equals("binary");
+        dumpBinary = !format.equals("dot");
         isTest = getOptions().getBoolean("test");
-        sliceIter = getOptions().getInt("slice-iteration");
+        sliceDepth = toSliceDepth(getOptions().get("slice-iteration"));
+        attribution = getOptions().getBoolean("slice-attribution");
+        pruning = getOptions().getBoolean("prune-call-graph");
+        lazy = getOptions().getBoolean("lazy-ipdg");
+        contextSensitive = getOptions().getBoolean("slice-context-sensitive");
+        changedMethodsFile = getOptions().getString("changed-methods");
+        if (getOptions().getBoolean("incremental") && !isDump) {
+            logger.warn("Incremental slicing requires dump: true, disable it");
+            incremental = false;
+        } else {
+            incremental = getOptions().getBoolean("incremental");
+        }
+        // 增量模式按子图复用文件，归因文件中的编号依赖各自的节点编号，二者都不能共用导出文件
+        if (getOptions().getBoolean("dedup-slices") && (incremental || attribution)) {
+            logger.warn("Slice deduplication is incompatible with incremental"
+                    + " and slice-attribution, disable it");
+            dedup = false;
+        } else {
+            dedup = getOptions().getBoolean("dedup-slices") && isDump;
+        }
+        dedupIterations = getOptions().getInt("dedup-iterations");
+        int threads = getOptions().getInt("parallelism");
+        parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
         acp = getAppClassPath();
-        handler = new SensAPIHandler();
+        handler = SensAPIHandler.get();
+        SinglePDGBuilder.resetStatistics();
+        budget = new SliceBudget(getOptions().getInt("max-method-nodes"),
+                getOptions().getInt("max-subgraph-nodes"),
+                getOptions().getInt("subgraph-time-limit") * 1000L);
+        profiler = getOptions().getBoolean("profile") ?
+                new IPDGProfiler(getOptions().getInt("profile-top")) :
+                IPDGProfiler.DISABLED;
+        heapIndex = getOptions().getBoolean("heap-dependence") ?
+                HeapAliasIndex.fromWorld() : null;
+        pdgFingerprint = PDGStore.fingerprintOf(ID,
+                World.get().getOptions().getAnalyses());
+        String storeDir = getOptions().getString("pdg-store");
+        PDGStore pdgStore;
+        if (storeDir != null && heapIndex != null) {
+            // 堆上的依赖边取决于整个程序的指针分析结果，方法本身未变化时也可能失效
+            logger.warn("PDG store is incompatible with heap-dependence, disable it");
+            pdgStore = null;
+        } else if (storeDir != null) {
+            File dir = new File(storeDir);
+            dir.mkdirs();
+            pdgStore = PDGStore.open(new File(dir,
+                    acp[acp.length - 1] + "-ipdg.pdgstore"), pdgFingerprint);
+        } else {
+            pdgStore = null;
+        }
+        context = new IPDGContext(getOptions().getInt("pdg-cache-size"),
+                AdaptiveDominatorEngine.fromOptions(getOptions()),
+                pdgStore, heapIndex, profiler, budget);
         if (isDump) {
             String fileDir = isTest ? TEST_DIR : FILE_DIR;
             File dir = new File(World.get().getOptions().getOutputDir(), fileDir);
@@ -71,108 +255,511 @@ public class ChoppedIPDGBuilder extends ProgramAnalysis<ICFG<JMethod, Stmt>> {
     public ICFG<JMethod, Stmt> analyze() {
         Set<CallGraph<Stmt, JMethod>> subgraphSet = World.get().getResult(CallGraphPartitioning.ID);
         if (!subgraphSet.isEmpty()) {
-            int idx = 0;
-            for (CallGraph<Stmt, JMethod> subgraph : subgraphSet) {
-                ICFG<JMethod, Stmt> slicedIPDG = new ChoppedDefaultIPDG(subgraph, sliceIter);
-                if (isDump) {
-                    dumpIPDG(slicedIPDG, idx);
-                }
-                idx++;
+            // 子图编号按集合的迭代顺序预先确定，与并行调度无关
+            List<CallGraph<Stmt, JMethod>> subgraphs = new ArrayList<>(subgraphSet);
+            if (incremental) {
+                analyzeIncrementally(subgraphs);
+            } else {
+                analyze(subgraphs, allIndexes(subgraphs), null, null);
             }
         } else {
             logger.info("No sensitive subgraph in this jar, skip it");
         }
+        if (isDump) {
+            dumpPartialSubgraphs();
+            dumpDedupManifest();
+        }
+        context.logStatistics();
+        SinglePDGBuilder.logStatistics();
+        profiler.logSummary();
+        profiler.writeSummary(new File(World.get().getOptions().getOutputDir(),
+                PROFILE_FILE));
+        context.close();
         return null;
     }
 
-    private void dumpIPDG(ICFG<JMethod, Stmt> ipdg, int idx) {
-        String fileName = acp[acp.length - 1] + "-{" + idx + "}-" + "slice.dot";
-        File dotFile = new File(dumpDir, fileName);
-        logger.info("Dumping program slice to {}", dotFile.getAbsolutePath());
-        Indexer<Stmt> indexer = new SimpleIndexer<>();
-        new DotDumper<Stmt>()
-                .setNodeToString(n -> Integer.toString(indexer.getIndex(n)))
-                .setNodeLabeler(n -> toLabel(n, ipdg))
-                .setGlobalNodeAttributes(DotAttributes.of("shape", "box",
-                        "style", "filled", "color", "\".3 .2 1.0\""))
-                .setEdgeLabeler(e -> {
-                    if (e instanceof CallEdge) {
-                        return "CALL";
-                    } else if (e instanceof ReturnEdge) {
-                        return "RETURN";
-                    } else if (e instanceof CallToReturnEdge) {
-                        return "CALL2RET";
-                    } else {
-                        NormalEdge<Stmt> normalEdge = (NormalEdge<Stmt>) e;
-                        CFGEdge<Stmt> edge = normalEdge.getCFGEdge();
-                        return edge.getKind().toString();
-                    }
-                })
-                .setEdgeAttributer(e -> {
-                    if (e instanceof CallEdge) {
-                        return DotAttributes.of("style", "dashed", "color", "blue");
-                    } else if (e instanceof ReturnEdge) {
-                        return DotAttributes.of("style", "dashed", "color", "red");
+    private static List<Integer> allIndexes(List<?> list) {
+        List<Integer> indexes = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    /**
+     * 处理编号在indexes中的子图
+     * @param keys 子图标识，非增量模式下为null
+     * @param manifest 记录导出文件的清单，非增量模式下为null
+     */
+    private void analyze(List<CallGraph<Stmt, JMethod>> subgraphs, List<Integer> indexes,
+                         List<String> keys, SliceManifest manifest) {
+        if (parallelism > 1 && indexes.size() > 1) {
+            analyzeInParallel(subgraphs, indexes, keys, manifest);
+        } else {
+            for (int idx : indexes) {
+                processSubgraph(subgraphs.get(idx), idx,
+                        keys == null ? null : keys.get(idx), manifest);
+            }
+        }
+    }
+
+    /**
+     * 增量模式：与上一次运行的清单比较，只重新切片包含变化方法的子图，
+     * 其余子图的导出文件按新的编号重命名后复用，最后写出本次运行的清单
+     */
+    private void analyzeIncrementally(List<CallGraph<Stmt, JMethod>> subgraphs) {
+        File manifestFile = new File(dumpDir, MANIFEST);
+        SliceManifest previous = SliceManifest.read(manifestFile);
+        SliceManifest current = new SliceManifest(getSliceOptions());
+        if (previous != null && !previous.getOptions().equals(current.getOptions())) {
+            logger.info("Slice options changed, re-slice all subgraphs");
+            previous = null;
+        }
+        if (previous != null && heapIndex != null) {
+            // 任何方法的变化都可能改变指针分析结果，从而改变其他子图中堆上的依赖边
+            logger.info("Heap dependence is enabled, re-slice all subgraphs");
+            previous = null;
+        }
+        Set<String> changed = findChangedMethods(subgraphs, previous, current);
+        List<String> keys = new ArrayList<>(subgraphs.size());
+        List<Integer> toProcess = new ArrayList<>();
+        Map<Integer, List<String>> reused = Maps.newLinkedHashMap();
+        for (int idx = 0; idx < subgraphs.size(); idx++) {
+            CallGraph<Stmt, JMethod> subgraph = subgraphs.get(idx);
+            String key = SliceManifest.keyOf(subgraph);
+            keys.add(key);
+            List<String> files = previous == null ? null : previous.getFilesOf(key);
+            if (files != null && !reused.containsValue(files)
+                    && files.stream().allMatch(f -> new File(dumpDir, f).exists())
+                    && !containsAny(subgraph, changed)) {
+                reused.put(idx, files);
+            } else {
+                toProcess.add(idx);
+            }
+        }
+        logger.info("Incremental slicing: {} subgraphs reused, {} subgraphs re-sliced",
+                reused.size(), toProcess.size());
+        // 先将复用的文件移到暂存目录，再删除上一次运行的其他文件，避免与新编号的文件冲突
+        File staging = new File(dumpDir, STAGING_DIR);
+        staging.mkdirs();
+        try {
+            for (List<String> files : reused.values()) {
+                for (String file : files) {
+                    Files.move(new File(dumpDir, file).toPath(),
+                            new File(staging, file).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (previous != null) {
+                for (String file : previous.getAllFiles()) {
+                    Files.deleteIfExists(new File(dumpDir, file).toPath());
+                }
+            }
+            analyze(subgraphs, toProcess, keys, current);
+            for (Map.Entry<Integer, List<String>> entry : reused.entrySet()) {
+                int idx = entry.getKey();
+                List<String> files = new ArrayList<>();
+                for (String file : entry.getValue()) {
+                    String newFile;
+                    if (file.endsWith(ATTRIBUTION_SUFFIX)) {
+                        newFile = attributionFileName(idx);
+                    } else if (file.endsWith(BINARY_SUFFIX)) {
+                        newFile = binaryFileName(idx);
                     } else {
-                        return DotAttributes.of();
+                        newFile = sliceFileName(idx);
                     }
-                })
-                .dump(ipdg, dotFile);
+                    Files.move(new File(staging, file).toPath(),
+                            new File(dumpDir, newFile).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    files.add(newFile);
+                }
+                current.addSubgraph(keys.get(idx), files);
+            }
+            Files.deleteIfExists(staging.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reuse previous slices in "
+                    + dumpDir.getAbsolutePath(), e);
+        }
+        current.write(manifestFile);
+    }
+
+    /**
+     * 计算所有应用方法的内容哈希并记入本次的清单
+     * @return 变化的方法签名：指定了changed-methods时为其中列出的方法，
+     * 否则为哈希与上一次运行不同或新增的方法
+     */
+    private Set<String> findChangedMethods(List<CallGraph<Stmt, JMethod>> subgraphs,
+                                           SliceManifest previous, SliceManifest current) {
+        Set<String> changed = Sets.newSet();
+        if (changedMethodsFile != null) {
+            try {
+                Files.readAllLines(new File(changedMethodsFile).toPath())
+                        .stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .forEach(changed::add);
+            } catch (IOException e) {
+                throw new ConfigException("Failed to read changed methods from "
+                        + changedMethodsFile, e);
+            }
+        }
+        // 同一方法可能出现在多个子图中，只计算一次哈希
+        Set<JMethod> hashed = Sets.newSet();
+        for (CallGraph<Stmt, JMethod> subgraph : subgraphs) {
+            subgraph.forEach(method -> {
+                if (!method.getDeclaringClass().isApplication()
+                        || method.isAbstract() || method.isNative()
+                        || !hashed.add(method)) {
+                    return;
+                }
+                current.addMethodHash(method.getSignature(),
+                        PDGStore.contentHashOf(method.getIR(), pdgFingerprint));
+            });
+        }
+        if (changedMethodsFile == null && previous != null) {
+            changed.addAll(current.getChangedMethodsSince(previous));
+        }
+        return changed;
     }
 
-    private String toLabel(Stmt stmt, ICFG<JMethod, Stmt> ipdg) {
-        JMethod method = ipdg.getContainingMethodOf(stmt);
-        CFG<Stmt> pdg = getPDGOf(method);
-        return toLabel0(stmt, pdg, handler);
+    /**
+     * 子图中的方法或其调用的方法是否有变化
+     */
+    private static boolean containsAny(CallGraph<Stmt, JMethod> subgraph, Set<String> changed) {
+        for (JMethod method : subgraph) {
+            if (changed.contains(method.getSignature())) {
+                return true;
+            }
+            for (JMethod callee : subgraph.getCalleesOfM(method)) {
+                if (changed.contains(callee.getSignature())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * 增加节点的相关信息，例如语句类型、是否为敏感API、敏感API类型等信息
-     * @param node 节点
-     * @param pdg 程序依赖图
-     * @param handler 敏感API处理器
-     * @return
-     * @param <N>
+     * @return 影响切片结果的选项
      */
-    private <N> String toLabel0(N node, CFG<N> pdg, SensAPIHandler handler) {
-        if (pdg.isEntry(node)) {
-            return "Entry" + pdg.getMethod();
-        } else if (pdg.isExit(node)) {
-            return "Exit" + pdg.getMethod();
-        } else {
-            // 增加语句类型
-            String subCategory = "no";
-            if (node instanceof Invoke invoke) {
-                if (handler.isSensitive(invoke)) {
-                    subCategory = handler.getAPIShortCode(
-                            handler.getMethodRef(invoke).toString()
-                    );
+    private String getSliceOptions() {
+        return "slice-iteration=" + sliceDepth
+                + ",slice-attribution=" + attribution
+                + ",slice-context-sensitive=" + contextSensitive
+                + ",heap-dependence=" + (heapIndex != null)
+                + ",budget=" + budget
+                + ",dump-compress=" + compressDump
+                + ",dump-dot=" + dumpDot
+                + ",dump-binary=" + dumpBinary
+                + ",test=" + isTest
+                + ",sensitive-apis=" + Long.toHexString(handler.getContentHash());
+    }
+
+    private void analyzeInParallel(List<CallGraph<Stmt, JMethod>> subgraphs, List<Integer> indexes,
+                                   List<String> keys, SliceManifest manifest) {
+        int nThreads = Math.min(parallelism, indexes.size());
+        logger.info("Building IPDGs of {} subgraphs with {} threads",
+                indexes.size(), nThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(indexes.size());
+            for (int idx : indexes) {
+                CallGraph<Stmt, JMethod> subgraph = subgraphs.get(idx);
+                String key = keys == null ? null : keys.get(idx);
+                futures.add(executor.submit(() ->
+                        processSubgraph(subgraph, idx, key, manifest)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("IPDG construction is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to build IPDG", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 构建、切片并导出一个子图，可在多个线程中同时调用
+     * @param subgraph 调用图子图
+     * @param idx 子图编号，用于导出文件名
+     * @param key 子图标识，非增量模式下为null
+     * @param manifest 记录导出文件的清单，非增量模式下为null
+     */
+    private void processSubgraph(CallGraph<Stmt, JMethod> subgraph, int idx,
+                                 String key, SliceManifest manifest) {
+        profiler.beginSubgraph(idx);
+        ChoppedDefaultIPDG slicedIPDG = new ChoppedDefaultIPDG(
+                subgraph, sliceDepth, attribution, pruning, lazy,
+                contextSensitive, context);
+        Set<String> partialReasons = slicedIPDG.getPartialReasons();
+        if (!partialReasons.isEmpty()) {
+            logger.warn("Slice of subgraph {} is partial: {}", idx, partialReasons);
+            partialSubgraphs.put(idx, partialReasons);
+        }
+        if (isDump && dedup) {
+            profiler.time(IPDGProfiler.Phase.DUMPING, () -> classify(slicedIPDG, idx));
+        } else if (isDump) {
+            List<String> files = profiler.time(IPDGProfiler.Phase.DUMPING, () ->
+                    dumpSlice(slicedIPDG, idx, n -> toLabel(n, slicedIPDG)));
+            if (manifest != null) {
+                // 不完整的切片不参与复用，下一次运行时重新切片
+                if (partialReasons.isEmpty()) {
+                    manifest.addSubgraph(key, files);
+                } else {
+                    manifest.addPartialSubgraph(key, files);
                 }
             }
-            String prefix = node.getClass().getSimpleName() + "-StmtType-"
-                    + subCategory + "-SensType-"
-                    + ((Stmt) node).getIndex() + ": ";
-            return node instanceof Stmt ?
-                    prefix + node.toString().replace("\"", "\\\"") :
-                    node.toString();
-//            return node instanceof Stmt ?
-//                    node.getClass().getSimpleName() + "-ST-" + ((Stmt) node).getIndex() + ": " + node.toString().replace("\"", "\\\""):
-//                    node.toString();
         }
+        profiler.endSubgraph(subgraph.getNumberOfMethods(),
+                slicedIPDG.getNodes().size(), slicedIPDG.getNumberOfEdges());
     }
 
-    static CFG<Stmt> getPDGOf(JMethod method) {
-        // not user-defined method
-        if (method.getDeclaringClass().isApplication()) {
-            try {
-                return SinglePDGBuilder.analyze(method.getIR());
-            } catch (ArrayIndexOutOfBoundsException e) {
-                logger.error("Index error, may be in ModifierDisjointSetUnion, skip this method " + e);
-                return null;
+    /**
+     * 导出子图的切片
+     * @param nodeLabeler 节点的标签，见toLabel
+     * @return 导出的文件名
+     */
+    private List<String> dumpSlice(ChoppedDefaultIPDG ipdg, int idx,
+                                   Function<Stmt, String> nodeLabeler) {
+        Indexer<Stmt> indexer = new SimpleIndexer<>();
+        List<String> files = new ArrayList<>();
+        if (dumpDot) {
+            dumpIPDG(ipdg, idx, indexer, nodeLabeler);
+            files.add(sliceFileName(idx));
+        }
+        if (dumpBinary) {
+            dumpBinary(ipdg, idx, indexer);
+            files.add(binaryFileName(idx));
+        }
+        if (ipdg.hasSliceAttribution()) {
+            dumpAttribution(ipdg, idx, indexer);
+            files.add(attributionFileName(idx));
+        }
+        return files;
+    }
+
+    private String sliceFileName(int idx) {
+        return acp[acp.length - 1] + "-{" + idx + "}-" + "slice.dot"
+                + (compressDump ? SliceDotWriter.GZIP_SUFFIX : "");
+    }
+
+    private String attributionFileName(int idx) {
+        return acp[acp.length - 1] + "-{" + idx + "}-" + ATTRIBUTION_SUFFIX;
+    }
+
+    private String binaryFileName(int idx) {
+        return acp[acp.length - 1] + "-{" + idx + "}-" + BINARY_SUFFIX;
+    }
+
+    private void dumpIPDG(ChoppedDefaultIPDG ipdg, int idx, Indexer<Stmt> indexer,
+                          Function<Stmt, String> nodeLabeler) {
+        File dotFile = new File(dumpDir, sliceFileName(idx));
+        logger.info("Dumping program slice to {}", dotFile.getAbsolutePath());
+        try {
+            SliceDotWriter.dump(ipdg, dotFile, compressDump,
+                    SliceDotWriter.NODE_ATTRIBUTES,
+                    indexer::getIndex,
+                    nodeLabeler,
+                    ChoppedIPDGBuilder::toEdgeLabel,
+                    e -> {
+                        if (e instanceof CallEdge) {
+                            return "style=dashed,color=blue";
+                        } else if (e instanceof ReturnEdge) {
+                            return "style=dashed,color=red";
+                        } else {
+                            return null;
+                        }
+                    });
+        } catch (IOException e) {
+            logger.warn("Failed to dump program slice to {}",
+                    dotFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 去重时相同切片的等价类，只保留标签形状，切片由第一个归入的子图导出
+     */
+    private record SliceClass(SliceHasher.Shape shape, int canonical) {
+    }
+
+    /**
+     * 将子图的切片归入等价类：先以结构哈希查找，哈希相同时再比较标签形状确认。
+     * 新的等价类立即导出，因此并行时导出切片的子图编号取决于调度顺序，
+     * 以去重清单中记录的为准
+     */
+    private void classify(ChoppedDefaultIPDG ipdg, int idx) {
+        Map<Stmt, String> labels = SliceHasher.labelsOf(ipdg, n -> toLabel(n, ipdg));
+        String hash = SliceHasher.hashOf(ipdg, labels,
+                ChoppedIPDGBuilder::toEdgeLabel, dedupIterations);
+        SliceHasher.Shape shape = SliceHasher.shapeOf(ipdg, labels,
+                ChoppedIPDGBuilder::toEdgeLabel);
+        sliceHashes.put(idx, hash);
+        SliceClass sliceClass = null;
+        synchronized (sliceClasses) {
+            List<SliceClass> classes = sliceClasses.computeIfAbsent(hash,
+                    __ -> new ArrayList<>());
+            for (SliceClass c : classes) {
+                if (c.shape().equals(shape)) {
+                    sliceClass = c;
+                    break;
+                }
             }
+            if (sliceClass == null) {
+                if (!classes.isEmpty()) {
+                    logger.info("Slice of subgraph {} has the same hash {} as"
+                            + " a different slice, dump it separately", idx, hash);
+                }
+                sliceClass = new SliceClass(shape, idx);
+                classes.add(sliceClass);
+            }
+        }
+        classOfSubgraph.put(idx, sliceClass);
+        if (sliceClass.canonical() == idx) {
+            dumpSlice(ipdg, idx, labels::get);
+        }
+    }
+
+    /**
+     * 导出去重清单，每行为子图编号、切片哈希、实际导出该切片的子图编号及其文件，
+     * 未开启去重时删除该文件
+     */
+    private void dumpDedupManifest() {
+        File dedupFile = new File(dumpDir, DEDUP_FILE);
+        if (!dedup) {
+            dedupFile.delete();
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(dedupFile))) {
+            sliceHashes.keySet().stream().sorted().forEach(idx -> {
+                String hash = sliceHashes.get(idx);
+                int canonical = classOfSubgraph.get(idx).canonical();
+                StringJoiner files = new StringJoiner("\t");
+                if (dumpDot) {
+                    files.add(sliceFileName(canonical));
+                }
+                if (dumpBinary) {
+                    files.add(binaryFileName(canonical));
+                }
+                out.println(idx + "\t" + hash + "\t" + canonical + "\t" + files);
+            });
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to dump slice deduplication manifest to {}",
+                    dedupFile.getAbsolutePath(), e);
+        }
+        logger.info("{} distinct slices dumped for {} subgraphs",
+                sliceClasses.values().stream().mapToInt(List::size).sum(),
+                sliceHashes.size());
+    }
+
+    private void dumpBinary(ChoppedDefaultIPDG ipdg, int idx, Indexer<Stmt> indexer) {
+        File binFile = new File(dumpDir, binaryFileName(idx));
+        try {
+            SliceBinaryWriter.write(ipdg, binFile, indexer, handler);
+        } catch (IOException e) {
+            logger.warn("Failed to dump binary slice to {}",
+                    binFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 导出不完整的子图，每行为子图编号及其降级原因，没有不完整的子图时删除该文件
+     */
+    private void dumpPartialSubgraphs() {
+        File partialFile = new File(dumpDir, PARTIAL_FILE);
+        if (partialSubgraphs.isEmpty()) {
+            partialFile.delete();
+            return;
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(partialFile))) {
+            partialSubgraphs.keySet().stream().sorted().forEach(idx ->
+                    out.println(idx + "\t"
+                            + String.join(",", partialSubgraphs.get(idx))));
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to dump partial subgraphs to {}",
+                    partialFile.getAbsolutePath(), e);
+        }
+        logger.warn("{} subgraphs exceeded their budgets, see {}",
+                partialSubgraphs.size(), partialFile.getAbsolutePath());
+    }
+
+    /**
+     * 导出切片中每个节点的归因信息，每行为一个节点在dot文件中的编号，
+     * 以及到达该节点的敏感API调用点在dot文件中的编号
+     */
+    private void dumpAttribution(ChoppedDefaultIPDG ipdg, int idx, Indexer<Stmt> indexer) {
+        File attrFile = new File(dumpDir, attributionFileName(idx));
+        try (PrintStream out = new PrintStream(new FileOutputStream(attrFile))) {
+            for (Stmt node : ipdg) {
+                StringJoiner joiner = new StringJoiner(",");
+                ipdg.getSliceCriteriaOf(node).forEach(criterion ->
+                        joiner.add(Integer.toString(indexer.getIndex(criterion))));
+                out.println(indexer.getIndex(node) + "\t" + joiner);
+            }
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to dump slice attribution to {}",
+                    attrFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 增加节点的相关信息，例如语句类型、是否为敏感API、敏感API类型等信息，
+     * 入口和出口由切片结果直接判断，无需再取所在方法的PDG
+     */
+    private String toLabel(Stmt stmt, ChoppedDefaultIPDG ipdg) {
+        if (ipdg.isMethodEntry(stmt)) {
+            return "Entry" + ipdg.getContainingMethodOf(stmt);
+        } else if (ipdg.isMethodExit(stmt)) {
+            return "Exit" + ipdg.getContainingMethodOf(stmt);
+        } else {
+            return SliceDumper.toStmtLabel(stmt, handler);
+        }
+    }
+
+    /**
+     * 边的类型，即dot文件中边的标签
+     */
+    private static String toEdgeLabel(Edge<Stmt> e) {
+        if (e instanceof CallEdge) {
+            return "CALL";
+        } else if (e instanceof ReturnEdge) {
+            return "RETURN";
+        } else if (e instanceof CallToReturnEdge) {
+            return "CALL2RET";
         } else {
-            return null;
+            NormalEdge<Stmt> normalEdge = (NormalEdge<Stmt>) e;
+            CFGEdge<Stmt> edge = normalEdge.getCFGEdge();
+            return edge.getKind().toString();
+        }
+    }
+
+    /**
+     * 解析切片的最大依赖距离，"unbounded"表示不限制
+     */
+    private static int toSliceDepth(Object value) {
+        if (value == null || UNBOUNDED.equals(value)) {
+            return MultiSourceSlicer.UNBOUNDED;
+        }
+        int depth;
+        try {
+            depth = Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw new ConfigException("Invalid slice-iteration: " + value
+                    + ", expected a non-negative integer or " + UNBOUNDED);
+        }
+        if (depth == LEGACY_UNBOUNDED) {
+            logger.warn("slice-iteration={} is deprecated, use slice-iteration={} instead",
+                    LEGACY_UNBOUNDED, UNBOUNDED);
+            return MultiSourceSlicer.UNBOUNDED;
+        }
+        if (depth < 0) {
+            throw new ConfigException("Invalid slice-iteration: " + value
+                    + ", expected a non-negative integer or " + UNBOUNDED);
         }
+        return depth;
     }
 
     private static String[] getAppClassPath() {
@@ -0,0 +1,133 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.PDGStore;
+import pascal.taie.analysis.graph.cfg.SinglePDGBuilder;
+import pascal.taie.analysis.utils.AdaptiveDominatorEngine;
+import pascal.taie.analysis.utils.HeapAliasIndex;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+/**
+ * 一次IPDG构建中所有子图共享的状态：PDG缓存，构建PDG所用的支配树引擎、磁盘存储和堆别名索引，
+ * 以及统计和预算。每次构建创建一个，传给该次构建的每个{@link ChoppedDefaultIPDG}
+ */
+class IPDGContext {
+
+    private static final Logger logger = LogManager.getLogger(IPDGContext.class);
+
+    private final PDGCache pdgCache;
+
+    private final AdaptiveDominatorEngine dominatorEngine;
+
+    /**
+     * 跨运行复用的PDG磁盘存储，未开启或已关闭时为null
+     */
+    private PDGStore pdgStore;
+
+    /**
+     * 堆别名索引，未开启堆依赖时为null
+     */
+    private final HeapAliasIndex heapIndex;
+
+    private final IPDGProfiler profiler;
+
+    private final SliceBudget budget;
+
+    /**
+     * @param cacheSize PDG缓存的容量，非正数表示不限制
+     * @param pdgStore PDG的磁盘存储，为null时不使用
+     * @param heapIndex 堆别名索引，为null时不加入堆上的依赖边
+     * @param profiler 各阶段的耗时和内存统计
+     * @param budget 方法和子图的规模与时间预算
+     */
+    IPDGContext(int cacheSize, AdaptiveDominatorEngine dominatorEngine,
+                PDGStore pdgStore, HeapAliasIndex heapIndex,
+                IPDGProfiler profiler, SliceBudget budget) {
+        this.pdgCache = new PDGCache(cacheSize, this::buildPDGOf);
+        this.dominatorEngine = dominatorEngine;
+        this.pdgStore = pdgStore;
+        this.heapIndex = heapIndex;
+        this.profiler = profiler;
+        this.budget = budget;
+    }
+
+    /**
+     * @return 不使用磁盘存储、堆依赖和统计，也不限制预算的上下文
+     */
+    static IPDGContext unlimited() {
+        return new IPDGContext(-1, AdaptiveDominatorEngine.DEFAULT, null, null,
+                IPDGProfiler.DISABLED, SliceBudget.UNLIMITED);
+    }
+
+    IPDGProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @return 堆别名索引，未开启堆依赖时为null
+     */
+    HeapAliasIndex getHeapIndex() {
+        return heapIndex;
+    }
+
+    SliceBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return 方法的连边信息，在所有子图之间共享，非应用方法或PDG缺失时返回null
+     */
+    MethodWiring getWiringOf(JMethod method) {
+        if (method.getDeclaringClass().isApplication()) {
+            return pdgCache.getWiring(method);
+        } else {
+            return null;
+        }
+    }
+
+    CFG<Stmt> getPDGOf(JMethod method) {
+        // not user-defined method
+        if (method.getDeclaringClass().isApplication()) {
+            return pdgCache.get(method);
+        } else {
+            return null;
+        }
+    }
+
+    private CFG<Stmt> buildPDGOf(JMethod method) {
+        if (budget.exceeds(method)) {
+            logger.warn("{} has {} statements, exceeding max-method-nodes, skip its PDG",
+                    method, method.getIR().getStmts().size());
+            return null;
+        }
+        try {
+            return profiler.time(IPDGProfiler.Phase.PDG_BUILD, method, () ->
+                    SinglePDGBuilder.analyze(method.getIR(), dominatorEngine,
+                            pdgStore, heapIndex));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            logger.error("Index error when building PDG of {}, skip this method {}", method, e);
+            return null;
+        }
+    }
+
+    void logStatistics() {
+        pdgCache.logStatistics();
+        dominatorEngine.logStatistics();
+        if (pdgStore != null) {
+            pdgStore.logStatistics();
+        }
+    }
+
+    /**
+     * 关闭磁盘存储，应在所有子图处理完后调用，之后构建的PDG不再读写存储
+     */
+    void close() {
+        if (pdgStore != null) {
+            pdgStore.close();
+            pdgStore = null;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package pascal.taie.analysis.graph.icfg;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ipdg分析各阶段的耗时和内存分配统计。
+ * 阶段可以嵌套（例如连边时触发PDG构建），每个阶段只计入自身的时间和分配量，
+ * 不含嵌套在其中的其他阶段；分配量按当前线程统计，因此并行构建子图时同样准确。
+ * 每个阶段和子图同时作为JFR事件提交，运行结束时输出JSON汇总。
+ * 未开启时使用{@link #DISABLED}，所有操作直接执行而不做任何统计
+ */
+class IPDGProfiler {
+
+    private static final Logger logger = LogManager.getLogger(IPDGProfiler.class);
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static final IPDGProfiler DISABLED = new IPDGProfiler(0, false);
+
+    enum Phase {
+        PDG_BUILD("pdg-build"),
+        EDGE_WIRING("edge-wiring"),
+        CALL_SITE_LOOKUP("call-site-lookup"),
+        SLICING("slicing"),
+        DUMPING("dumping");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    @Name("pdg4taie.IPDGPhase")
+    @Label("IPDG Phase")
+    @Category({"PDG4Tai-e", "IPDG"})
+    static class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Subgraph")
+        int subgraph;
+
+        @Label("Method")
+        String method;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+
+    @Name("pdg4taie.IPDGSubgraph")
+    @Label("IPDG Subgraph")
+    @Category({"PDG4Tai-e", "IPDG"})
+    static class SubgraphEvent extends Event {
+
+        @Label("Subgraph")
+        int subgraph;
+
+        @Label("Methods")
+        int methods;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Edges")
+        int edges;
+    }
+
+    private record Frame(Phase phase, long startNanos, long startBytes,
+                         long[] children, PhaseEvent event) {
+    }
+
+    private record SubgraphFrame(int index, long startNanos, SubgraphEvent event) {
+    }
+
+    private record Timed(String name, long nanos) {
+    }
+
+    private final boolean enabled;
+
+    /**
+     * 记录的最慢方法和子图的数量
+     */
+    private final int topN;
+
+    private final LongAdder[] nanos = newAdders();
+
+    private final LongAdder[] bytes = newAdders();
+
+    private final LongAdder[] counts = newAdders();
+
+    private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final ThreadLocal<SubgraphFrame> currentSubgraph = new ThreadLocal<>();
+
+    private final List<Map<String, Object>> subgraphs = new ArrayList<>();
+
+    /**
+     * 最慢的方法和子图，均为按耗时排序的小顶堆
+     */
+    private final PriorityQueue<Timed> slowestMethods =
+            new PriorityQueue<>(Comparator.comparingLong(Timed::nanos));
+
+    private final PriorityQueue<Timed> slowestSubgraphs =
+            new PriorityQueue<>(Comparator.comparingLong(Timed::nanos));
+
+    private final long startNanos = System.nanoTime();
+
+    IPDGProfiler(int topN) {
+        this(topN, true);
+    }
+
+    private IPDGProfiler(int topN, boolean enabled) {
+        this.topN = topN;
+        this.enabled = enabled;
+        if (enabled && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    <T> T time(Phase phase, Supplier<T> action) {
+        return time(phase, null, action);
+    }
+
+    void time(Phase phase, Runnable action) {
+        time(phase, null, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 统计一个阶段
+     * @param method 阶段所处理的方法，不为null时计入最慢的方法
+     */
+    <T> T time(Phase phase, JMethod method, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        Deque<Frame> stack = frames.get();
+        Frame frame = new Frame(phase, System.nanoTime(), allocatedBytes(),
+                new long[2], event);
+        stack.push(frame);
+        try {
+            return action.get();
+        } finally {
+            stack.pop();
+            long elapsed = System.nanoTime() - frame.startNanos();
+            long allocated = allocatedBytes() - frame.startBytes();
+            int i = phase.ordinal();
+            nanos[i].add(elapsed - frame.children()[0]);
+            bytes[i].add(allocated - frame.children()[1]);
+            counts[i].increment();
+            Frame parent = stack.peek();
+            if (parent != null) {
+                parent.children()[0] += elapsed;
+                parent.children()[1] += allocated;
+            }
+            if (method != null) {
+                offer(slowestMethods, new Timed(method.getSignature(), elapsed));
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                SubgraphFrame subgraph = currentSubgraph.get();
+                event.phase = phase.key;
+                event.subgraph = subgraph == null ? -1 : subgraph.index();
+                event.method = method == null ? null : method.getSignature();
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 开始处理一个子图，当前线程之后的阶段都归属于该子图
+     */
+    void beginSubgraph(int index) {
+        if (!enabled) {
+            return;
+        }
+        SubgraphEvent event = new SubgraphEvent();
+        event.begin();
+        currentSubgraph.set(new SubgraphFrame(index, System.nanoTime(), event));
+    }
+
+    void endSubgraph(int methods, int nodes, int edges) {
+        if (!enabled) {
+            return;
+        }
+        SubgraphFrame frame = currentSubgraph.get();
+        currentSubgraph.remove();
+        long elapsed = System.nanoTime() - frame.startNanos();
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("index", frame.index());
+        record.put("methods", methods);
+        record.put("nodes", nodes);
+        record.put("edges", edges);
+        record.put("nanos", elapsed);
+        synchronized (subgraphs) {
+            subgraphs.add(record);
+        }
+        offer(slowestSubgraphs, new Timed(Integer.toString(frame.index()), elapsed));
+        SubgraphEvent event = frame.event();
+        event.end();
+        if (event.shouldCommit()) {
+            event.subgraph = frame.index();
+            event.methods = methods;
+            event.nodes = nodes;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    void logSummary() {
+        if (!enabled) {
+            return;
+        }
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            logger.info("Phase {}: {} ms, {} MB allocated, {} times", phase.key,
+                    nanos[i].sum() / 1_000_000, bytes[i].sum() >> 20, counts[i].sum());
+        }
+    }
+
+    /**
+     * 以JSON格式输出各阶段的统计、每个子图的规模和耗时，以及最慢的方法和子图
+     */
+    void writeSummary(File file) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("wallNanos", System.nanoTime() - startNanos);
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("nanos", nanos[i].sum());
+            stats.put("allocatedBytes", bytes[i].sum());
+            stats.put("count", counts[i].sum());
+            phases.put(phase.key, stats);
+        }
+        summary.put("phases", phases);
+        synchronized (subgraphs) {
+            List<Map<String, Object>> sorted = new ArrayList<>(subgraphs);
+            sorted.sort(Comparator.comparingInt(r -> (Integer) r.get("index")));
+            summary.put("subgraphs", sorted);
+        }
+        summary.put("slowestMethods", toList(slowestMethods, "method"));
+        summary.put("slowestSubgraphs", toList(slowestSubgraphs, "index"));
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, summary);
+            logger.info("Dumped ipdg profile to {}", file.getAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("Failed to dump ipdg profile to {}", file.getAbsolutePath(), e);
+        }
+    }
+
+    private void offer(PriorityQueue<Timed> heap, Timed timed) {
+        if (topN <= 0) {
+            return;
+        }
+        synchronized (heap) {
+            if (heap.size() < topN) {
+                heap.add(timed);
+            } else if (heap.peek().nanos() < timed.nanos()) {
+                heap.poll();
+                heap.add(timed);
+            }
+        }
+    }
+
+    /**
+     * @return 按耗时降序排列的记录
+     */
+    private static List<Map<String, Object>> toList(PriorityQueue<Timed> heap, String key) {
+        List<Timed> sorted;
+        synchronized (heap) {
+            sorted = new ArrayList<>(heap);
+        }
+        sorted.sort(Comparator.comparingLong(Timed::nanos).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(sorted.size());
+        for (Timed timed : sorted) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put(key, timed.name());
+            record.put("nanos", timed.nanos());
+            result.add(record);
+        }
+        return result;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Phase.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long allocatedBytes() {
+        return threads.isThreadAllocatedMemorySupported() ?
+                threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+}
@@ -0,0 +1,118 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGEdge;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 一个方法在IPDG中的连边信息，每个方法只计算一次，在包含该方法的所有子图之间只读共享：
+ * 方法内的依赖边、作为被调方法时返回边携带的返回变量和异常，
+ * 以及每个调用点到各被调方法的调用边和返回边。
+ * 与PDG一起保存在{@link PDGCache}中，PDG被淘汰时随之释放
+ */
+class MethodWiring {
+
+    /**
+     * PDG中的节点，按PDG的迭代顺序
+     */
+    private final List<Stmt> nodes;
+
+    /**
+     * intraEdges.get(i)为nodes.get(i)在PDG中的出边
+     */
+    private final List<List<ICFGEdge<Stmt>>> intraEdges;
+
+    private final Set<Var> retVars;
+
+    private final Set<ClassType> exceptions;
+
+    /**
+     * 调用点到各被调方法的调用边和返回边，首次使用时创建
+     */
+    private final Map<Stmt, Map<JMethod, List<ICFGEdge<Stmt>>>> interEdges =
+            Maps.newConcurrentMap();
+
+    MethodWiring(CFG<Stmt> pdg) {
+        int size = pdg.getNumberOfNodes();
+        List<Stmt> nodes = new ArrayList<>(size);
+        List<List<ICFGEdge<Stmt>>> intraEdges = new ArrayList<>(size);
+        pdg.forEach(stmt -> {
+            nodes.add(stmt);
+            List<ICFGEdge<Stmt>> edges = new ArrayList<>();
+            pdg.getOutEdgesOf(stmt).forEach(edge ->
+                    edges.add(new NormalEdge<>(edge))); // intra control dependence
+            intraEdges.add(Collections.unmodifiableList(edges));
+        });
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.intraEdges = Collections.unmodifiableList(intraEdges);
+        Set<Var> retVars = Sets.newHybridSet();
+        Set<ClassType> exceptions = Sets.newHybridSet();
+        // The exit node of CFG is mock, thus it is not
+        // a real return or excepting Stmt. We need to
+        // collect return and exception information from
+        // the real return and excepting Stmts, and attach
+        // them to the ReturnEdge.
+        pdg.getInEdgesOf(pdg.getExit()).forEach(retEdge -> {
+            if (retEdge.getKind() == CFGEdge.Kind.RETURN) {
+                Return ret = (Return) retEdge.source();
+                if (ret.getValue() != null) {
+                    retVars.add(ret.getValue());
+                }
+            }
+            if (retEdge.isExceptional()) {
+                exceptions.addAll(retEdge.getExceptions());
+            }
+        });
+        this.retVars = Collections.unmodifiableSet(retVars);
+        this.exceptions = Collections.unmodifiableSet(exceptions);
+    }
+
+    int getNumberOfNodes() {
+        return nodes.size();
+    }
+
+    Stmt getNode(int i) {
+        return nodes.get(i);
+    }
+
+    List<ICFGEdge<Stmt>> getIntraEdgesOf(int i) {
+        return intraEdges.get(i);
+    }
+
+    /**
+     * @return 该方法作为被调方法时，返回边携带的返回变量
+     */
+    Set<Var> getReturnVars() {
+        return retVars;
+    }
+
+    /**
+     * @return 该方法作为被调方法时，返回边携带的异常
+     */
+    Set<ClassType> getExceptions() {
+        return exceptions;
+    }
+
+    /**
+     * @param builder 首次请求时创建调用边和返回边
+     * @return 从调用点到被调方法的调用边和返回边
+     */
+    List<ICFGEdge<Stmt>> getInterEdgesOf(Stmt callSite, JMethod callee,
+                                         Supplier<List<ICFGEdge<Stmt>>> builder) {
+        return interEdges.computeIfAbsent(callSite, cs -> Maps.newConcurrentMap())
+                .computeIfAbsent(callee, c -> List.copyOf(builder.get()));
+    }
+}
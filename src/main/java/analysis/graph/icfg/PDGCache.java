@@ -0,0 +1,119 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 以方法为键的PDG缓存，保证每个方法的PDG在缓存中时只被构建一次。
+ * 缓存是线程安全的，容量有限时按LRU策略淘汰。
+ */
+class PDGCache {
+
+    private static final Logger logger = LogManager.getLogger(PDGCache.class);
+
+    /**
+     * 缓存容量，非正数表示不限制
+     */
+    private final int capacity;
+
+    private final Function<JMethod, CFG<Stmt>> builder;
+
+    private final Map<JMethod, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    PDGCache(int capacity, Function<JMethod, CFG<Stmt>> builder) {
+        this.capacity = capacity;
+        this.builder = builder;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<JMethod, Entry> eldest) {
+                if (PDGCache.this.capacity > 0 && size() > PDGCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return PDG of the given method, or null if it cannot be built.
+     * 同一方法的并发请求会等待第一个请求构建完成，而不是重复构建
+     */
+    CFG<Stmt> get(JMethod method) {
+        return entryOf(method).get(method);
+    }
+
+    /**
+     * @return 方法的连边信息，与PDG一起缓存，PDG无法构建时返回null
+     */
+    MethodWiring getWiring(JMethod method) {
+        return entryOf(method).getWiring(method);
+    }
+
+    private Entry entryOf(JMethod method) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(method);
+            if (entry == null) {
+                misses.incrementAndGet();
+                entry = new Entry();
+                entries.put(method, entry);
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+        return entry;
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    void logStatistics() {
+        long h = hits.get(), m = misses.get();
+        long total = h + m;
+        logger.info("PDG cache: {} hits, {} misses, {} evictions, hit rate {}%",
+                h, m, evictions.get(),
+                total == 0 ? 0 : String.format("%.2f", 100.0 * h / total));
+    }
+
+    private class Entry {
+
+        private boolean computed;
+
+        private CFG<Stmt> pdg;
+
+        private MethodWiring wiring;
+
+        private synchronized CFG<Stmt> get(JMethod method) {
+            if (!computed) {
+                pdg = builder.apply(method);
+                computed = true;
+            }
+            return pdg;
+        }
+
+        private synchronized MethodWiring getWiring(JMethod method) {
+            if (wiring == null && get(method) != null) {
+                wiring = new MethodWiring(pdg);
+            }
+            return wiring;
+        }
+    }
+}
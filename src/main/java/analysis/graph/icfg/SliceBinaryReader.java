@@ -0,0 +1,205 @@
+package pascal.taie.analysis.graph.icfg;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 切片二进制导出文件（*-slice.bin）的读取器，将文件映射到内存后按需解析，
+ * 不需要像dot文件一样解析文本。
+ * <p>
+ * 文件格式（所有整数均为大端序的32位int，下标均从0开始）：
+ * <pre>
+ * header         magic "SLCB", version,
+ *                nodeCount N, edgeCount E, stringCount S, kindCount K
+ * stringOffsets  int[S+1]，第i个字符串为blob[stringOffsets[i], stringOffsets[i+1])
+ * stringBlob     UTF-8字节，之后补0到4字节对齐
+ * kindNames      int[K]，边类型编码k的名称为字符串kindNames[k]
+ * nodeColumns    6列，每列int[N]，依次为：
+ *                  TYPE      语句类型（语句的类名，入口和出口为"Entry"和"Exit"）的字符串编号
+ *                  SENS      敏感API简称（shortTitle）的字符串编号，非敏感调用为-1
+ *                  CATEGORY  敏感API类别的字符串编号，非敏感调用为-1
+ *                  INDEX     语句在所在方法IR中的下标，入口和出口为-1
+ *                  METHOD    所在方法签名的字符串编号
+ *                  TEXT      语句文本的字符串编号，入口和出口为所在方法签名
+ * edgeOffsets    int[N+1]，节点u的出边为[edgeOffsets[u], edgeOffsets[u+1])
+ * edgeTargets    int[E]，边的终点
+ * edgeKinds      byte[E]，边类型编码
+ * </pre>
+ * 节点编号与同一子图的dot文件和归因文件中的编号一致。
+ * 例如在Python中可以用numpy.frombuffer(..., dtype='>i4')直接读取各数组。
+ */
+public class SliceBinaryReader {
+
+    static final int MAGIC = 0x534c4342; // "SLCB"
+
+    /**
+     * 文件格式的版本，格式变化时递增
+     */
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    public static final int TYPE = 0;
+
+    public static final int SENS = 1;
+
+    public static final int CATEGORY = 2;
+
+    public static final int INDEX = 3;
+
+    public static final int METHOD = 4;
+
+    public static final int TEXT = 5;
+
+    static final int COLUMN_COUNT = 6;
+
+    /**
+     * 边类型的名称，前面是CFGEdge.Kind中的类型，之后是过程间的边
+     */
+    static final String CALL = "CALL";
+
+    static final String RETURN = "RETURN";
+
+    static final String CALL2RET = "CALL2RET";
+
+    private final ByteBuffer buf;
+
+    private final int nodeCount;
+
+    private final int edgeCount;
+
+    private final int stringCount;
+
+    private final int kindCount;
+
+    private final int stringOffsetsStart;
+
+    private final int blobStart;
+
+    private final int kindNamesStart;
+
+    private final int columnsStart;
+
+    private final int edgeOffsetsStart;
+
+    private final int edgeTargetsStart;
+
+    private final int edgeKindsStart;
+
+    private SliceBinaryReader(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary slice file");
+        }
+        if (buf.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported binary slice version: "
+                    + buf.getInt(Integer.BYTES));
+        }
+        nodeCount = buf.getInt(2 * Integer.BYTES);
+        edgeCount = buf.getInt(3 * Integer.BYTES);
+        stringCount = buf.getInt(4 * Integer.BYTES);
+        kindCount = buf.getInt(5 * Integer.BYTES);
+        stringOffsetsStart = HEADER_SIZE;
+        blobStart = stringOffsetsStart + (stringCount + 1) * Integer.BYTES;
+        kindNamesStart = align(blobStart + buf.getInt(blobStart - Integer.BYTES));
+        columnsStart = kindNamesStart + kindCount * Integer.BYTES;
+        edgeOffsetsStart = columnsStart + COLUMN_COUNT * nodeCount * Integer.BYTES;
+        edgeTargetsStart = edgeOffsetsStart + (nodeCount + 1) * Integer.BYTES;
+        edgeKindsStart = edgeTargetsStart + edgeCount * Integer.BYTES;
+        if (edgeKindsStart + edgeCount != buf.capacity()) {
+            throw new IOException("Truncated binary slice file");
+        }
+    }
+
+    /**
+     * 将文件映射到内存，映射在返回后仍然有效
+     */
+    public static SliceBinaryReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            return new SliceBinaryReader(mapped);
+        }
+    }
+
+    public int getNumberOfNodes() {
+        return nodeCount;
+    }
+
+    public int getNumberOfEdges() {
+        return edgeCount;
+    }
+
+    public int getNumberOfStrings() {
+        return stringCount;
+    }
+
+    /**
+     * @return 编号为i的字符串，i为-1时返回null
+     */
+    public String getString(int i) {
+        if (i < 0) {
+            return null;
+        }
+        int begin = buf.getInt(stringOffsetsStart + i * Integer.BYTES);
+        int end = buf.getInt(stringOffsetsStart + (i + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - begin];
+        buf.get(blobStart + begin, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param column 列，例如{@link #TYPE}
+     * @return 节点u在该列上的值，多数列为字符串编号
+     */
+    public int getColumn(int column, int u) {
+        return buf.getInt(columnsStart + (column * nodeCount + u) * Integer.BYTES);
+    }
+
+    /**
+     * @return 节点u的第一条出边的编号
+     */
+    public int begin(int u) {
+        return buf.getInt(edgeOffsetsStart + u * Integer.BYTES);
+    }
+
+    /**
+     * @return 节点u的最后一条出边的编号加一
+     */
+    public int end(int u) {
+        return buf.getInt(edgeOffsetsStart + (u + 1) * Integer.BYTES);
+    }
+
+    /**
+     * @return 编号为e的边的终点
+     */
+    public int target(int e) {
+        return buf.getInt(edgeTargetsStart + e * Integer.BYTES);
+    }
+
+    /**
+     * @return 编号为e的边的类型编码
+     */
+    public int kindOf(int e) {
+        return buf.get(edgeKindsStart + e);
+    }
+
+    /**
+     * @return 边类型编码对应的名称，例如"DEF_USE"或"CALL"
+     */
+    public String getKindName(int kind) {
+        if (kind < 0 || kind >= kindCount) {
+            throw new IllegalArgumentException("Invalid edge kind: " + kind);
+        }
+        return getString(buf.getInt(kindNamesStart + kind * Integer.BYTES));
+    }
+
+    static int align(int offset) {
+        return (offset + Integer.BYTES - 1) & -Integer.BYTES;
+    }
+}
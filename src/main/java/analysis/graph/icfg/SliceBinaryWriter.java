@@ -0,0 +1,235 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.blackcat.SensAPIHandler;
+import pascal.taie.analysis.blackcat.SensitiveAPIInfo;
+import pascal.taie.analysis.graph.cfg.CFGEdge;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.Indexer;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static pascal.taie.analysis.graph.icfg.SliceBinaryReader.*;
+
+/**
+ * 以二进制格式导出切片，格式见{@link SliceBinaryReader}。
+ * 节点的语句类型、敏感API类别等特征直接写成字符串编号，下游无需再从dot标签中解析
+ */
+class SliceBinaryWriter {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String[] KIND_NAMES;
+
+    static {
+        CFGEdge.Kind[] kinds = CFGEdge.Kind.values();
+        KIND_NAMES = new String[kinds.length + 3];
+        for (CFGEdge.Kind kind : kinds) {
+            KIND_NAMES[kind.ordinal()] = kind.name();
+        }
+        KIND_NAMES[kinds.length] = CALL;
+        KIND_NAMES[kinds.length + 1] = RETURN;
+        KIND_NAMES[kinds.length + 2] = CALL2RET;
+    }
+
+    private final Map<String, Integer> stringIds = Maps.newMap();
+
+    private final List<byte[]> strings = new ArrayList<>();
+
+    private SliceBinaryWriter() {
+    }
+
+    /**
+     * 导出所需的切片信息
+     */
+    interface Slice {
+
+        Set<Stmt> getNodes();
+
+        Collection<? extends ICFGEdge<Stmt>> getOutEdgesOf(Stmt node);
+
+        boolean isMethodEntry(Stmt node);
+
+        boolean isMethodExit(Stmt node);
+
+        String getMethodSignatureOf(Stmt node);
+
+        /**
+         * @return 敏感API的信息，不是敏感API调用时返回null
+         */
+        SensitiveAPIInfo getAPIInfo(Invoke invoke);
+    }
+
+    /**
+     * @param indexer 节点在导出文件中的编号，与dot文件共用以保持编号一致，
+     *                切片中的节点须恰好编号为0到节点数减一
+     */
+    static void write(ChoppedDefaultIPDG ipdg, File file, Indexer<Stmt> indexer,
+                      SensAPIHandler handler) throws IOException {
+        write(new Slice() {
+            @Override
+            public Set<Stmt> getNodes() {
+                return ipdg.getNodes();
+            }
+
+            @Override
+            public Collection<? extends ICFGEdge<Stmt>> getOutEdgesOf(Stmt node) {
+                return ipdg.getOutEdgesOf(node);
+            }
+
+            @Override
+            public boolean isMethodEntry(Stmt node) {
+                return ipdg.isMethodEntry(node);
+            }
+
+            @Override
+            public boolean isMethodExit(Stmt node) {
+                return ipdg.isMethodExit(node);
+            }
+
+            @Override
+            public String getMethodSignatureOf(Stmt node) {
+                return ipdg.getContainingMethodOf(node).getSignature();
+            }
+
+            @Override
+            public SensitiveAPIInfo getAPIInfo(Invoke invoke) {
+                return handler.getAPIInfo(invoke);
+            }
+        }, file, indexer);
+    }
+
+    static void write(Slice slice, File file, Indexer<Stmt> indexer) throws IOException {
+        new SliceBinaryWriter().write0(slice, file, indexer);
+    }
+
+    private void write0(Slice slice, File file, Indexer<Stmt> indexer) throws IOException {
+        int nodeCount = slice.getNodes().size();
+        Stmt[] nodes = new Stmt[nodeCount];
+        for (Stmt node : slice.getNodes()) {
+            int id = indexer.getIndex(node);
+            if (id < 0 || id >= nodeCount || nodes[id] != null) {
+                throw new IllegalArgumentException("Invalid node id " + id
+                        + " in a slice of " + nodeCount + " nodes: " + node);
+            }
+            nodes[id] = node;
+        }
+        int[][] columns = new int[COLUMN_COUNT][nodeCount];
+        int[] kindIds = new int[KIND_NAMES.length];
+        for (int k = 0; k < KIND_NAMES.length; k++) {
+            kindIds[k] = idOf(KIND_NAMES[k]);
+        }
+        int[] offsets = new int[nodeCount + 1];
+        int edgeCount = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            Stmt node = nodes[u];
+            int methodId = idOf(slice.getMethodSignatureOf(node));
+            columns[METHOD][u] = methodId;
+            columns[SENS][u] = -1;
+            columns[CATEGORY][u] = -1;
+            if (slice.isMethodEntry(node) || slice.isMethodExit(node)) {
+                columns[TYPE][u] = idOf(slice.isMethodEntry(node) ? "Entry" : "Exit");
+                columns[INDEX][u] = -1;
+                columns[TEXT][u] = methodId;
+            } else {
+                columns[TYPE][u] = idOf(node.getClass().getSimpleName());
+                columns[INDEX][u] = node.getIndex();
+                columns[TEXT][u] = idOf(node.toString());
+                if (node instanceof Invoke invoke) {
+                    SensitiveAPIInfo info = slice.getAPIInfo(invoke);
+                    if (info != null) {
+                        columns[SENS][u] = idOf(info.getShortTitle());
+                        columns[CATEGORY][u] = idOf(info.getCategoryName());
+                    }
+                }
+            }
+            // 打开文件前检查边的终点，避免写出不完整的文件
+            for (ICFGEdge<Stmt> edge : slice.getOutEdgesOf(node)) {
+                int target = indexer.getIndex(edge.target());
+                if (target < 0 || target >= nodeCount) {
+                    throw new IllegalArgumentException("Edge target "
+                            + edge.target() + " is not in the slice");
+                }
+                edgeCount++;
+            }
+            offsets[u + 1] = edgeCount;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(FileChannel.open(file.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeCount);
+            out.writeInt(edgeCount);
+            out.writeInt(strings.size());
+            out.writeInt(KIND_NAMES.length);
+            int blobSize = 0;
+            out.writeInt(0);
+            for (byte[] s : strings) {
+                blobSize += s.length;
+                out.writeInt(blobSize);
+            }
+            for (byte[] s : strings) {
+                out.write(s);
+            }
+            int blobStart = HEADER_SIZE + (strings.size() + 1) * Integer.BYTES;
+            for (int i = blobStart + blobSize; i < align(blobStart + blobSize); i++) {
+                out.writeByte(0);
+            }
+            for (int kindId : kindIds) {
+                out.writeInt(kindId);
+            }
+            for (int[] column : columns) {
+                for (int value : column) {
+                    out.writeInt(value);
+                }
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            byte[] kinds = new byte[edgeCount];
+            int e = 0;
+            for (Stmt node : nodes) {
+                for (ICFGEdge<Stmt> edge : slice.getOutEdgesOf(node)) {
+                    out.writeInt(indexer.getIndex(edge.target()));
+                    kinds[e++] = kindOf(edge);
+                }
+            }
+            out.write(kinds);
+        }
+    }
+
+    private int idOf(String s) {
+        return stringIds.computeIfAbsent(s, key -> {
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    private static byte kindOf(ICFGEdge<Stmt> edge) {
+        int intraKinds = KIND_NAMES.length - 3;
+        if (edge instanceof CallEdge) {
+            return (byte) intraKinds;
+        } else if (edge instanceof ReturnEdge) {
+            return (byte) (intraKinds + 1);
+        } else if (edge instanceof CallToReturnEdge) {
+            return (byte) (intraKinds + 2);
+        } else {
+            return (byte) ((NormalEdge<Stmt>) edge).getCFGEdge().getKind().ordinal();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 切片的规模和时间预算，超出时降级而不是让整个分析停滞：
+ * <ul>
+ *     <li>方法的CFG节点数超过maxMethodNodes时不构建其PDG，按PDG缺失处理；</li>
+ *     <li>子图的节点数估计值超过maxSubgraphNodes时只做过程内切片；</li>
+ *     <li>子图的处理时间超过timeLimitMillis时在当前边界截断切片。</li>
+ * </ul>
+ * 非正数表示不限制
+ */
+record SliceBudget(int maxMethodNodes, int maxSubgraphNodes, long timeLimitMillis) {
+
+    static final SliceBudget UNLIMITED = new SliceBudget(-1, -1, -1);
+
+    /**
+     * 降级原因，记录在partial-subgraphs.tsv中
+     */
+    static final String METHOD_BUDGET = "max-method-nodes";
+
+    static final String SUBGRAPH_BUDGET = "max-subgraph-nodes";
+
+    static final String TIME_LIMIT = "subgraph-time-limit";
+
+    /**
+     * @return 方法的CFG（语句加上入口和出口）是否超出预算
+     */
+    boolean exceeds(JMethod method) {
+        return maxMethodNodes > 0 && isConcrete(method)
+                && method.getIR().getStmts().size() + 2 > maxMethodNodes;
+    }
+
+    /**
+     * 以范围内各方法的CFG节点数之和估计子图的节点数，不需要先构建PDG
+     * @param scope 需要构建的方法，为null时为子图中的所有方法
+     */
+    boolean exceeds(CallGraph<Stmt, JMethod> callGraph, Set<JMethod> scope) {
+        if (maxSubgraphNodes <= 0) {
+            return false;
+        }
+        long nodes = 0;
+        for (JMethod method : callGraph) {
+            if ((scope == null || scope.contains(method)) && isConcrete(method)
+                    && method.getDeclaringClass().isApplication()) {
+                nodes += method.getIR().getStmts().size() + 2;
+                if (nodes > maxSubgraphNodes) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 从现在开始计时的超时判断，不限制时间时返回null
+     */
+    BooleanSupplier startTimer() {
+        if (timeLimitMillis <= 0) {
+            return null;
+        }
+        long deadline = System.nanoTime() + timeLimitMillis * 1_000_000;
+        return () -> System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * 依次处理元素，处理每个元素前检查是否超时，超时则停止并记录降级原因
+     * @param timeUp 超时判断，为null时不限制
+     * @param partialReasons 超时时加入{@link #TIME_LIMIT}
+     * @return 是否处理完了所有元素
+     */
+    static <T> boolean forEachWithin(Iterable<T> items, BooleanSupplier timeUp,
+                                     Set<String> partialReasons,
+                                     Consumer<? super T> action) {
+        for (T item : items) {
+            if (timeUp != null && timeUp.getAsBoolean()) {
+                partialReasons.add(TIME_LIMIT);
+                return false;
+            }
+            action.accept(item);
+        }
+        return true;
+    }
+
+    private static boolean isConcrete(JMethod method) {
+        return !method.isAbstract() && !method.isNative();
+    }
+}
@@ -0,0 +1,180 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.graph.Edge;
+import pascal.taie.util.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 切片的规范结构哈希，用于在导出前识别重复的切片。
+ * 采用Weisfeiler-Lehman哈希：节点的初始颜色为其导出标签的哈希，
+ * 每一轮以节点的颜色和按边类型、方向区分的邻居颜色多重集计算新颜色，
+ * 颜色划分不再细化或达到轮数上限时停止，最后对所有节点颜色的多重集求哈希。
+ * 结果与节点的编号和迭代顺序无关，同构且标签相同的切片哈希相同。
+ * 哈希相同不代表切片相同，去重前还需以{@link #shapeOf}确认
+ */
+class SliceHasher {
+
+    /**
+     * 区分出边和入边的邻居
+     */
+    private static final long OUT = 0x9e3779b97f4a7c15L;
+
+    private static final long IN = 0xc2b2ae3d27d4eb4fL;
+
+    private SliceHasher() {
+    }
+
+    /**
+     * @return 切片中每个节点的标签，由{@link #hashOf}和{@link #shapeOf}共用，
+     * 避免重复计算
+     */
+    static <N> Map<N, String> labelsOf(Graph<N> graph, Function<N, String> nodeLabeler) {
+        Map<N, String> labels = Maps.newMap(graph.getNumberOfNodes());
+        for (N node : graph.getNodes()) {
+            labels.put(node, nodeLabeler.apply(node));
+        }
+        return labels;
+    }
+
+    /**
+     * @param labels 节点的标签，与导出的dot文件相同
+     * @param edgeLabeler 边的类型
+     * @param iterations 最大轮数
+     * @return 哈希值及节点数和边数，三者都相同的切片才可能重复
+     */
+    static <N> String hashOf(Graph<N> graph,
+                             Map<N, String> labels,
+                             Function<Edge<N>, String> edgeLabeler,
+                             int iterations) {
+        List<N> nodes = List.copyOf(graph.getNodes());
+        int n = nodes.size();
+        Map<N, Integer> ids = Maps.newMap(n);
+        for (int i = 0; i < n; i++) {
+            ids.put(nodes.get(i), i);
+        }
+        long[] colors = new long[n];
+        // 每个节点的邻居编号及所在边的类型哈希，出边和入边放在一起
+        int[][] neighbors = new int[n][];
+        long[][] edgeKinds = new long[n][];
+        Map<String, Long> kindHashes = Maps.newMap();
+        int edgeCount = 0;
+        for (int v = 0; v < n; v++) {
+            N node = nodes.get(v);
+            colors[v] = hash(labels.get(node));
+            int degree = graph.getOutDegreeOf(node) + graph.getInDegreeOf(node);
+            neighbors[v] = new int[degree];
+            edgeKinds[v] = new long[degree];
+            int k = 0;
+            for (Edge<N> edge : graph.getOutEdgesOf(node)) {
+                neighbors[v][k] = ids.get(edge.target());
+                edgeKinds[v][k++] = OUT ^ kindHashes.computeIfAbsent(
+                        edgeLabeler.apply(edge), SliceHasher::hash);
+                edgeCount++;
+            }
+            for (Edge<N> edge : graph.getInEdgesOf(node)) {
+                neighbors[v][k] = ids.get(edge.source());
+                edgeKinds[v][k++] = IN ^ kindHashes.computeIfAbsent(
+                        edgeLabeler.apply(edge), SliceHasher::hash);
+            }
+        }
+        int classes = countDistinct(colors);
+        for (int round = 0; round < iterations; round++) {
+            long[] next = new long[n];
+            for (int v = 0; v < n; v++) {
+                long[] multiset = new long[neighbors[v].length];
+                for (int k = 0; k < multiset.length; k++) {
+                    multiset[k] = mix(edgeKinds[v][k] + colors[neighbors[v][k]]);
+                }
+                next[v] = fold(mix(colors[v]), multiset);
+            }
+            colors = next;
+            int newClasses = countDistinct(colors);
+            if (newClasses == classes) {
+                break;
+            }
+            classes = newClasses;
+        }
+        long hash = fold(mix(n * 31L + edgeCount), colors.clone());
+        return Long.toHexString(hash) + "-" + n + "-" + edgeCount;
+    }
+
+    /**
+     * 切片的标签形状
+     * @param nodeLabels 排序后的节点标签
+     * @param edgeLabels 排序后的边，每条边为起点标签、边的类型和终点标签
+     */
+    record Shape(List<String> nodeLabels, List<String> edgeLabels) {
+    }
+
+    /**
+     * @param labels 节点的标签，见{@link #labelsOf}
+     * @return 切片的标签形状，形状相同的切片在导出的节点和边的标签上无法区分
+     */
+    static <N> Shape shapeOf(Graph<N> graph,
+                             Map<N, String> labels,
+                             Function<Edge<N>, String> edgeLabeler) {
+        List<String> nodeLabels = new ArrayList<>(labels.values());
+        List<String> edgeLabels = new ArrayList<>();
+        for (N node : graph.getNodes()) {
+            for (Edge<N> edge : graph.getOutEdgesOf(node)) {
+                edgeLabels.add(labels.get(edge.source()) + '\0'
+                        + edgeLabeler.apply(edge) + '\0' + labels.get(edge.target()));
+            }
+        }
+        Collections.sort(nodeLabels);
+        Collections.sort(edgeLabels);
+        return new Shape(nodeLabels, edgeLabels);
+    }
+
+    /**
+     * 对多重集求哈希，与元素的顺序无关
+     */
+    private static long fold(long seed, long[] multiset) {
+        Arrays.sort(multiset);
+        long h = seed;
+        for (long x : multiset) {
+            h = mix(h * 31 + x);
+        }
+        return h;
+    }
+
+    private static int countDistinct(long[] colors) {
+        long[] sorted = colors.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * SplitMix64的终结函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
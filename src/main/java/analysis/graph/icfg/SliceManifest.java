@@ -0,0 +1,174 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 增量切片的清单，记录一次运行的切片选项、每个子图的标识及其导出文件，
+ * 以及每个方法的内容哈希。下一次运行据此找出未变化的子图，直接复用其导出文件。
+ * 清单为制表符分隔的文本，每行以记录类型开头：
+ * O 切片选项；S 子图标识和导出文件；M 方法签名和内容哈希。
+ */
+class SliceManifest {
+
+    private static final Logger logger = LogManager.getLogger(SliceManifest.class);
+
+    private static final String OPTIONS = "O";
+
+    private static final String SUBGRAPH = "S";
+
+    private static final String METHOD = "M";
+
+    /**
+     * 不完整子图的键前缀，带前缀的键不会与{@link #keyOf}的结果相同
+     */
+    private static final String PARTIAL_PREFIX = "partial:";
+
+    private final String options;
+
+    /**
+     * 子图标识到导出文件名的映射，文件相对于清单所在目录
+     */
+    private final Map<String, List<String>> subgraphFiles = Maps.newConcurrentMap();
+
+    private final Map<String, Long> methodHashes = Maps.newConcurrentMap();
+
+    /**
+     * @param options 影响切片结果的选项，不同时不能复用
+     */
+    SliceManifest(String options) {
+        this.options = options;
+    }
+
+    String getOptions() {
+        return options;
+    }
+
+    /**
+     * @return 清单不存在或无法读取时返回null
+     */
+    static SliceManifest read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            SliceManifest manifest = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields[0].equals(OPTIONS)) {
+                    manifest = new SliceManifest(fields.length > 1 ? fields[1] : "");
+                } else if (manifest == null) {
+                    break;
+                } else if (fields[0].equals(SUBGRAPH)) {
+                    manifest.addSubgraph(fields[1],
+                            Arrays.asList(fields).subList(2, fields.length));
+                } else if (fields[0].equals(METHOD)) {
+                    manifest.addMethodHash(fields[1], Long.parseUnsignedLong(fields[2], 16));
+                }
+            }
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read slice manifest {}", file.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    void write(File file) {
+        try (PrintStream out = new PrintStream(new FileOutputStream(file))) {
+            out.println(OPTIONS + "\t" + options);
+            subgraphFiles.forEach((key, files) ->
+                    out.println(SUBGRAPH + "\t" + key + "\t" + String.join("\t", files)));
+            methodHashes.forEach((signature, hash) ->
+                    out.println(METHOD + "\t" + signature + "\t" + Long.toHexString(hash)));
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to write slice manifest {}", file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 子图的标识，由其中所有方法的签名决定，与子图的编号无关
+     */
+    static String keyOf(CallGraph<Stmt, JMethod> subgraph) {
+        List<String> signatures = new ArrayList<>();
+        subgraph.forEach(method -> signatures.add(method.getSignature()));
+        signatures.sort(null);
+        long hash = 0xcbf29ce484222325L;
+        for (String signature : signatures) {
+            for (int i = 0; i < signature.length(); i++) {
+                hash ^= signature.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= '\n';
+            hash *= 0x100000001b3L;
+        }
+        return Long.toHexString(hash) + "-" + signatures.size();
+    }
+
+    void addSubgraph(String key, List<String> files) {
+        subgraphFiles.put(key, List.copyOf(files));
+    }
+
+    /**
+     * 记录因超出预算而不完整的子图，其文件只在下一次运行时删除，不会被复用
+     */
+    void addPartialSubgraph(String key, List<String> files) {
+        addSubgraph(PARTIAL_PREFIX + key, files);
+    }
+
+    /**
+     * @return 子图的导出文件名，清单中没有该子图时返回null
+     */
+    List<String> getFilesOf(String key) {
+        return subgraphFiles.get(key);
+    }
+
+    List<String> getAllFiles() {
+        List<String> files = new ArrayList<>();
+        subgraphFiles.values().forEach(files::addAll);
+        return files;
+    }
+
+    void addMethodHash(String signature, long hash) {
+        methodHashes.put(signature, hash);
+    }
+
+    /**
+     * @return 方法的内容哈希，清单中没有该方法时返回null
+     */
+    Long getMethodHash(String signature) {
+        return methodHashes.get(signature);
+    }
+
+    /**
+     * @param previous 上一次运行的清单
+     * @return 本清单中哈希与上一次不同或上一次没有的方法
+     */
+    Set<String> getChangedMethodsSince(SliceManifest previous) {
+        Set<String> changed = Sets.newSet();
+        methodHashes.forEach((signature, hash) -> {
+            if (!hash.equals(previous.getMethodHash(signature))) {
+                changed.add(signature);
+            }
+        });
+        return changed;
+    }
+}
@@ -0,0 +1,93 @@
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.blackcat.SensAPIHandler;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.utils.MultiSourceSlicer;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 切片范围：在构建PDG之前，根据调用图找出可能出现在切片中的方法。
+ * 切片只能沿调用边和返回边跨越方法，而这两种边只连接有PDG的应用方法，
+ * 后向切片经调用边到达调用者、经返回边到达被调用者，前向切片反之，
+ * 因此从包含敏感API调用点的方法出发，在应用方法之间沿调用者和被调用者双向搜索，
+ * 搜索不到的方法不会出现在任何切片中，无需构建其PDG。
+ * 后向切片经返回边进入被调用者后，又可以经调用边到达被调用者的其他调用者，
+ * 因此不能只沿一个方向搜索。切片不限制依赖距离时，搜索结果是敏感方法经应用方法
+ * 连通的整个部分，而子图本身就是由敏感方法出发得到的，所以通常只有在
+ * slice-iteration有界，或者方法只经由库方法与敏感方法相连时才能剪除方法。
+ */
+class SliceScope {
+
+    private SliceScope() {
+    }
+
+    /**
+     * @param callGraph 调用图子图
+     * @param sliceDepth 切片的最大依赖距离，每跨越一个方法至少经过一条边，
+     *                   因此与敏感方法的调用距离超过该值的方法不会被切片到达
+     * @param handler 敏感API处理器
+     * @return 可能出现在切片中的方法
+     */
+    static Set<JMethod> of(CallGraph<Stmt, JMethod> callGraph, int sliceDepth,
+                           SensAPIHandler handler) {
+        Set<JMethod> scope = Sets.newSet();
+        List<JMethod> frontier = new ArrayList<>();
+        callGraph.forEach(method -> {
+            if (hasSensitiveCallSite(method, handler)) {
+                scope.add(method);
+                frontier.add(method);
+            }
+        });
+        int depth = 0;
+        while (!frontier.isEmpty()
+                && (sliceDepth == MultiSourceSlicer.UNBOUNDED || depth < sliceDepth)) {
+            List<JMethod> next = new ArrayList<>();
+            for (JMethod method : frontier) {
+                callGraph.getCalleesOfM(method).forEach(callee -> {
+                    if (isApplication(callee) && scope.add(callee)) {
+                        next.add(callee);
+                    }
+                });
+                callGraph.getCallersOf(method).forEach(callSite -> {
+                    JMethod caller = callGraph.getContainerOf(callSite);
+                    if (isApplication(caller) && scope.add(caller)) {
+                        next.add(caller);
+                    }
+                });
+            }
+            frontier.clear();
+            frontier.addAll(next);
+            depth++;
+        }
+        return scope;
+    }
+
+    static boolean hasSensitiveCallSite(JMethod method, SensAPIHandler handler) {
+        if (!isApplication(method)) {
+            return false;
+        }
+        IR ir = method.getIR();
+        for (Stmt stmt : ir) {
+            if (stmt instanceof Invoke invoke && handler.isSensitive(invoke)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与{@link IPDGContext#getPDGOf}一致，只有应用方法有PDG
+     */
+    private static boolean isApplication(JMethod method) {
+        return method.getDeclaringClass().isApplication()
+                && !method.isAbstract() && !method.isNative();
+    }
+}
@@ -0,0 +1,146 @@
+package pascal.taie.analysis.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按图的规模选择支配树计算引擎：小图使用Cooper-Harvey-Kennedy，
+ * 大图使用Lengauer-Tarjan。Lengauer-Tarjan计算失败时退回到
+ * Cooper-Harvey-Kennedy；开启交叉检查时同时运行两种引擎并比较结果。
+ */
+public class AdaptiveDominatorEngine implements DominatorEngine {
+
+    private static final Logger logger = LogManager.getLogger(AdaptiveDominatorEngine.class);
+
+    public enum Mode {
+        /**
+         * 按节点数自动选择
+         */
+        AUTO,
+        /**
+         * 总是使用Lengauer-Tarjan
+         */
+        LT,
+        /**
+         * 总是使用Cooper-Harvey-Kennedy
+         */
+        CHK,
+    }
+
+    /**
+     * 自动模式下使用Cooper-Harvey-Kennedy的最大节点数（不含）
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    public static final AdaptiveDominatorEngine DEFAULT =
+            new AdaptiveDominatorEngine(Mode.AUTO, DEFAULT_THRESHOLD, false);
+
+    private static final DominatorEngine LT = new LengauerTarjanEngine();
+
+    private static final DominatorEngine CHK = new CooperHarveyKennedyEngine();
+
+    private final Mode mode;
+
+    private final int threshold;
+
+    private final boolean crossCheck;
+
+    private final AtomicLong ltCount = new AtomicLong();
+
+    private final AtomicLong chkCount = new AtomicLong();
+
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    private final AtomicLong mismatchCount = new AtomicLong();
+
+    public AdaptiveDominatorEngine(Mode mode, int threshold, boolean crossCheck) {
+        this.mode = mode;
+        this.threshold = threshold;
+        this.crossCheck = crossCheck;
+    }
+
+    /**
+     * 从分析选项dominator、dominator-threshold和dominator-cross-check创建引擎
+     */
+    public static AdaptiveDominatorEngine fromOptions(AnalysisOptions options) {
+        String value = options.getString("dominator");
+        Mode mode;
+        try {
+            mode = value == null ? Mode.AUTO : Mode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigException("Invalid dominator: " + value
+                    + ", expected auto, lt or chk");
+        }
+        return new AdaptiveDominatorEngine(mode,
+                options.getInt("dominator-threshold"),
+                options.getBoolean("dominator-cross-check"));
+    }
+
+    @Override
+    public int[] computeIdom(CSRGraph succs, CSRGraph preds, int root) {
+        boolean useLT = switch (mode) {
+            case AUTO -> succs.getNumberOfNodes() - 1 >= threshold;
+            case LT -> true;
+            case CHK -> false;
+        };
+        int[] idom;
+        if (useLT) {
+            try {
+                idom = LT.computeIdom(succs, preds, root);
+                ltCount.incrementAndGet();
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // ModifierDisjointSetUnion在少数图上会越界，改用迭代算法
+                logger.debug("Lengauer-Tarjan failed, fall back to Cooper-Harvey-Kennedy: {}", e.toString());
+                fallbackCount.incrementAndGet();
+                return computeByCHK(succs, preds, root);
+            }
+        } else {
+            idom = computeByCHK(succs, preds, root);
+        }
+        if (crossCheck) {
+            check(idom, succs, preds, root, useLT);
+        }
+        return idom;
+    }
+
+    private int[] computeByCHK(CSRGraph succs, CSRGraph preds, int root) {
+        chkCount.incrementAndGet();
+        return CHK.computeIdom(succs, preds, root);
+    }
+
+    private void check(int[] idom, CSRGraph succs, CSRGraph preds, int root,
+                       boolean usedLT) {
+        int[] other;
+        try {
+            other = (usedLT ? CHK : LT).computeIdom(succs, preds, root);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            logger.warn("Cross-check skipped, Lengauer-Tarjan failed: {}", e.toString());
+            return;
+        }
+        if (!Arrays.equals(idom, other)) {
+            mismatchCount.incrementAndGet();
+            for (int v = 0; v < idom.length; v++) {
+                if (idom[v] != other[v]) {
+                    logger.warn("Dominator engines disagree on a graph of {} nodes: " +
+                                    "first at node {}, {}={}, {}={}",
+                            succs.getNumberOfNodes() - 1, v,
+                            usedLT ? "lt" : "chk", idom[v],
+                            usedLT ? "chk" : "lt", other[v]);
+                    break;
+                }
+            }
+        }
+    }
+
+    public void logStatistics() {
+        logger.info("Dominator engines: {} Lengauer-Tarjan, {} Cooper-Harvey-Kennedy, " +
+                        "{} fallbacks{}",
+                ltCount.get(), chkCount.get(), fallbackCount.get(),
+                crossCheck ? ", " + mismatchCount.get() + " cross-check mismatches" : "");
+    }
+}
@@ -0,0 +1,116 @@
+package pascal.taie.analysis.utils;
+
+import java.util.Arrays;
+
+/**
+ * 压缩稀疏行（CSR）格式的不可变有向图，节点编号为0到n-1。
+ * 节点u的后继为targets[offsets[u]]到targets[offsets[u+1]-1]，
+ * 同一节点的后继按加边顺序排列。
+ */
+public class CSRGraph {
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private CSRGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public int getNumberOfNodes() {
+        return offsets.length - 1;
+    }
+
+    public int getNumberOfEdges() {
+        return targets.length;
+    }
+
+    /**
+     * @return 节点u的第一条出边的编号
+     */
+    public int begin(int u) {
+        return offsets[u];
+    }
+
+    /**
+     * @return 节点u的最后一条出边的编号加一
+     */
+    public int end(int u) {
+        return offsets[u + 1];
+    }
+
+    /**
+     * @return 编号为i的边的终点
+     */
+    public int target(int i) {
+        return targets[i];
+    }
+
+    public int outDegreeOf(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /**
+     * 以边表的形式收集边，再用计数排序一次性生成CSR图
+     */
+    public static class Builder {
+
+        private final int nodeCount;
+
+        private int[] sources;
+
+        private int[] targets;
+
+        private int edgeCount;
+
+        public Builder(int nodeCount) {
+            this(nodeCount, 16);
+        }
+
+        public Builder(int nodeCount, int expectedEdges) {
+            this.nodeCount = nodeCount;
+            int capacity = Math.max(expectedEdges, 1);
+            this.sources = new int[capacity];
+            this.targets = new int[capacity];
+        }
+
+        public void addEdge(int source, int target) {
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                targets = Arrays.copyOf(targets, edgeCount * 2);
+            }
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            edgeCount++;
+        }
+
+        public CSRGraph build() {
+            return build(false);
+        }
+
+        /**
+         * @param sortTargets 是否将每个节点的后继按编号升序排列，否则按加边顺序排列
+         */
+        public CSRGraph build(boolean sortTargets) {
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int u = 0; u < nodeCount; u++) {
+                offsets[u + 1] += offsets[u];
+            }
+            int[] cursor = Arrays.copyOf(offsets, nodeCount);
+            int[] csrTargets = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                csrTargets[cursor[sources[i]]++] = targets[i];
+            }
+            if (sortTargets) {
+                for (int u = 0; u < nodeCount; u++) {
+                    Arrays.sort(csrTargets, offsets[u], offsets[u + 1]);
+                }
+            }
+            return new CSRGraph(offsets, csrTargets);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 图中调用点的索引，一次遍历建立从被调用方法引用到所有调用点的映射，
+ * 之后按方法引用查找调用点只需常数时间。
+ */
+public class CallSiteIndex {
+
+    private final Map<MethodRef, List<Invoke>> callSites = new LinkedHashMap<>();
+
+    /**
+     * @param nodes 图中的所有节点，调用点按遍历顺序记录
+     */
+    public CallSiteIndex(Iterable<Stmt> nodes) {
+        for (Stmt node : nodes) {
+            if (node instanceof Invoke invoke) {
+                callSites.computeIfAbsent(SensAPIHandler.getMethodRef(invoke),
+                        __ -> new ArrayList<>()).add(invoke);
+            }
+        }
+    }
+
+    /**
+     * @return 调用该方法引用的所有调用点
+     */
+    public List<Invoke> getCallSitesOf(MethodRef ref) {
+        return callSites.getOrDefault(ref, List.of());
+    }
+
+    public Set<MethodRef> getMethodRefs() {
+        return Collections.unmodifiableSet(callSites.keySet());
+    }
+
+    /**
+     * @return 所有调用敏感API的调用点，同一敏感API的每个调用点都会被返回。
+     * 每个不同的方法引用只做一次敏感性判断
+     */
+    public List<Invoke> getSensitiveCallSites(SensAPIHandler handler) {
+        List<Invoke> result = new ArrayList<>();
+        callSites.forEach((ref, invokes) -> {
+            if (handler.isSensitive(ref)) {
+                result.addAll(invokes);
+            }
+        });
+        return result;
+    }
+}
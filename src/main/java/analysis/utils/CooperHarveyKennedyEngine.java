@@ -0,0 +1,91 @@
+package pascal.taie.analysis.utils;
+
+/**
+ * Cooper-Harvey-Kennedy迭代算法（A Simple, Fast Dominance Algorithm），
+ * 按逆后序反复求前驱支配者的交集直到不动点。
+ * 不需要并查集等辅助结构，在节点较少的图上比Lengauer-Tarjan更快。
+ */
+public class CooperHarveyKennedyEngine implements DominatorEngine {
+
+    @Override
+    public int[] computeIdom(CSRGraph succs, CSRGraph preds, int root) {
+        int size = succs.getNumberOfNodes();
+        // postorder[v]为节点v的后序编号（从1开始），0表示从root不可达
+        int[] postorder = new int[size];
+        int[] rpo = new int[size];
+        int count = postorder(succs, root, postorder, rpo);
+
+        int[] idom = new int[size];
+        idom[root] = root;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // 逆后序，跳过root
+            for (int i = 1; i < count; i++) {
+                int v = rpo[i];
+                int newIdom = 0;
+                for (int e = preds.begin(v); e < preds.end(v); e++) {
+                    int p = preds.target(e);
+                    if (postorder[p] == 0 || idom[p] == 0) {
+                        continue; // 不可达或尚未处理
+                    }
+                    newIdom = newIdom == 0 ? p : intersect(p, newIdom, idom, postorder);
+                }
+                if (newIdom != 0 && idom[v] != newIdom) {
+                    idom[v] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        idom[root] = 0;
+        return idom;
+    }
+
+    private static int intersect(int a, int b, int[] idom, int[] postorder) {
+        while (a != b) {
+            while (postorder[a] < postorder[b]) {
+                a = idom[a];
+            }
+            while (postorder[b] < postorder[a]) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 用显式栈做深度优先遍历，计算后序编号，并把节点按逆后序存入rpo
+     * @return 可达节点的数量
+     */
+    private static int postorder(CSRGraph succs, int root, int[] postorder, int[] rpo) {
+        int size = succs.getNumberOfNodes();
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+        int top = 0;
+        int counter = 0;
+        visited[root] = true;
+        stack[top++] = root;
+        cursor[root] = succs.begin(root);
+        int[] order = new int[size];
+        while (top > 0) {
+            int k = stack[top - 1];
+            if (cursor[k] < succs.end(k)) {
+                int v = succs.target(cursor[k]++);
+                if (!visited[v]) {
+                    visited[v] = true;
+                    stack[top++] = v;
+                    cursor[v] = succs.begin(v);
+                }
+            } else {
+                top--;
+                order[counter++] = k;
+                postorder[k] = counter;
+            }
+        }
+        for (int i = 0; i < counter; i++) {
+            rpo[i] = order[counter - 1 - i];
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,17 @@
+package pascal.taie.analysis.utils;
+
+/**
+ * 支配树的计算引擎。节点编号从1开始，编号0不对应任何节点。
+ */
+public interface DominatorEngine {
+
+    /**
+     * 计算从root出发可达的节点的直接支配者
+     * @param succs 每个节点的后继
+     * @param preds 每个节点的前驱
+     * @param root 根节点
+     * @return 长度与节点数（含编号0）相同的数组，第i项为节点i的直接支配者，
+     * root和从root不可达的节点为0
+     */
+    int[] computeIdom(CSRGraph succs, CSRGraph preds, int root);
+}
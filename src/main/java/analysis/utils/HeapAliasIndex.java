@@ -0,0 +1,134 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.World;
+import pascal.taie.analysis.pta.PointerAnalysis;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.exp.FieldAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 堆别名索引：为指针分析中的抽象对象和字段分配整数编号，并缓存每个变量指向的对象编号。
+ * 访问堆的语句被映射为若干个堆位置（对象编号和字段编号组成的long），
+ * 访问相同堆位置的写语句和读语句互为别名。
+ * 索引在所有方法之间共享且线程安全，每个变量的指向集只转换一次。
+ */
+public class HeapAliasIndex {
+
+    private static final long[] NO_LOCATIONS = new long[0];
+
+    /**
+     * 数组元素使用的字段编号
+     */
+    private static final int ARRAY_ELEMENT = 0;
+
+    /**
+     * 静态字段使用的对象编号
+     */
+    private static final int STATIC_OBJ = -1;
+
+    private final PointerAnalysisResult pta;
+
+    private final Map<Obj, Integer> objIds = Maps.newConcurrentMap();
+
+    private final AtomicInteger objCounter = new AtomicInteger();
+
+    private final Map<JField, Integer> fieldIds = Maps.newConcurrentMap();
+
+    private final AtomicInteger fieldCounter = new AtomicInteger(ARRAY_ELEMENT + 1);
+
+    /**
+     * 变量指向的对象编号
+     */
+    private final Map<Var, int[]> pointsTo = Maps.newConcurrentMap();
+
+    public HeapAliasIndex(PointerAnalysisResult pta) {
+        this.pta = pta;
+    }
+
+    /**
+     * @return 基于本次运行的指针分析结果的索引
+     */
+    public static HeapAliasIndex fromWorld() {
+        PointerAnalysisResult pta = World.get().getResult(PointerAnalysis.ID);
+        if (pta == null) {
+            throw new ConfigException("Heap dependence requires the result of "
+                    + PointerAnalysis.ID + ", please enable it");
+        }
+        return new HeapAliasIndex(pta);
+    }
+
+    public static boolean isStore(Stmt stmt) {
+        return stmt instanceof StoreField || stmt instanceof StoreArray;
+    }
+
+    public static boolean isLoad(Stmt stmt) {
+        return stmt instanceof LoadField || stmt instanceof LoadArray;
+    }
+
+    /**
+     * @return 写堆或读堆的语句访问的堆位置，其他语句返回空数组
+     */
+    public long[] getLocationsOf(Stmt stmt) {
+        if (stmt instanceof StoreField store) {
+            return locationsOf(store.getFieldAccess());
+        } else if (stmt instanceof LoadField load) {
+            return locationsOf(load.getFieldAccess());
+        } else if (stmt instanceof StoreArray store) {
+            return locationsOf(store.getArrayAccess().getBase(), ARRAY_ELEMENT);
+        } else if (stmt instanceof LoadArray load) {
+            return locationsOf(load.getArrayAccess().getBase(), ARRAY_ELEMENT);
+        }
+        return NO_LOCATIONS;
+    }
+
+    private long[] locationsOf(FieldAccess access) {
+        JField field = access.getFieldRef().resolveNullable();
+        if (field == null) {
+            return NO_LOCATIONS;
+        }
+        int fieldId = fieldIds.computeIfAbsent(field,
+                __ -> fieldCounter.getAndIncrement());
+        if (access instanceof InstanceFieldAccess instance) {
+            return locationsOf(instance.getBase(), fieldId);
+        }
+        return new long[] { locationOf(STATIC_OBJ, fieldId) };
+    }
+
+    private long[] locationsOf(Var base, int fieldId) {
+        int[] objs = pointsTo.computeIfAbsent(base, this::toObjIds);
+        long[] locations = new long[objs.length];
+        for (int i = 0; i < objs.length; i++) {
+            locations[i] = locationOf(objs[i], fieldId);
+        }
+        return locations;
+    }
+
+    private int[] toObjIds(Var var) {
+        Set<Obj> objs = pta.getPointsToSet(var);
+        int[] ids = new int[objs.size()];
+        int i = 0;
+        for (Obj obj : objs) {
+            ids[i++] = objIds.computeIfAbsent(obj,
+                    __ -> objCounter.getAndIncrement());
+        }
+        return ids;
+    }
+
+    private static long locationOf(int objId, int fieldId) {
+        return ((long) fieldId << 32) | (objId & 0xffffffffL);
+    }
+}
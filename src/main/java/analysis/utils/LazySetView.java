@@ -0,0 +1,95 @@
+package pascal.taie.analysis.utils;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * 不可修改的集合视图，元素由一段连续下标在遍历时按需创建，集合本身不保存元素。
+ * 用于在压缩存储的图上返回边集合，调用者需保证各下标对应的元素互不相同；
+ * 节点集合中同一邻居可能对应多条边，不能直接使用该视图。
+ * contains只在这段下标中查找，给定matcher时不创建元素。
+ * @param <E> 元素类型
+ */
+public class LazySetView<E> extends AbstractSet<E> {
+
+    private final int[] ids;
+
+    private final int begin;
+
+    private final int end;
+
+    private final IntFunction<E> factory;
+
+    private final Matcher matcher;
+
+    /**
+     * @param ids 下标到元素编号的映射，为null时下标即元素编号
+     * @param begin 起始下标（含）
+     * @param end 结束下标（不含）
+     * @param factory 由元素编号创建元素
+     */
+    public LazySetView(int[] ids, int begin, int end, IntFunction<E> factory) {
+        this(ids, begin, end, factory, (o, id) -> factory.apply(id).equals(o));
+    }
+
+    /**
+     * @param matcher 判断对象是否为给定编号的元素
+     */
+    public LazySetView(int[] ids, int begin, int end, IntFunction<E> factory,
+                       Matcher matcher) {
+        this.ids = ids;
+        this.begin = begin;
+        this.end = end;
+        this.factory = factory;
+        this.matcher = matcher;
+    }
+
+    /**
+     * 不创建元素，直接由元素编号判断对象是否为该元素
+     */
+    @FunctionalInterface
+    public interface Matcher {
+
+        boolean matches(Object o, int id);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+
+            private int i = begin;
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public E next() {
+                if (i >= end) {
+                    throw new NoSuchElementException();
+                }
+                int id = ids == null ? i : ids[i];
+                i++;
+                return factory.apply(id);
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (int i = begin; i < end; i++) {
+            if (matcher.matches(o, ids == null ? i : ids[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return end - begin;
+    }
+}
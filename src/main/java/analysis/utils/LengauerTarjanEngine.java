@@ -0,0 +1,107 @@
+package pascal.taie.analysis.utils;
+
+import java.util.Arrays;
+
+/**
+ * Lengauer-Tarjan算法，基于带权并查集{@link ModifierDisjointSetUnion}，
+ * 适合节点较多的图。
+ */
+public class LengauerTarjanEngine implements DominatorEngine {
+
+    @Override
+    public int[] computeIdom(CSRGraph succs, CSRGraph preds, int root) {
+        return new Solver(succs, preds).solve(root);
+    }
+
+    /**
+     * 每次计算使用独立的状态，因此引擎可以被多个线程共享
+     */
+    private static class Solver {
+
+        private final CSRGraph g, ig;
+
+        private final int n;
+
+        private final int[] dfn, pos, fa, sdom, idom;
+
+        /**
+         * sds的桶，以链表形式保存在数组中
+         */
+        private final int[] sdsHead, sdsNext;
+
+        private Solver(CSRGraph succs, CSRGraph preds) {
+            this.g = succs;
+            this.ig = preds;
+            this.n = succs.getNumberOfNodes() - 1;
+            dfn = new int[n + 1];
+            pos = new int[n + 1];
+            fa = new int[n + 1];
+            sdom = new int[n + 1];
+            idom = new int[n + 1];
+            sdsHead = new int[n + 1];
+            sdsNext = new int[n + 1];
+        }
+
+        private int dfnMin(int x, int y) {
+            return (dfn[x] < dfn[y]) ? x : y;
+        }
+
+        /**
+         * 用显式栈代替递归，访问顺序与递归的先序遍历相同，超长方法也不会栈溢出
+         */
+        private void dfs(int source) {
+            int[] stack = new int[n + 1];
+            int[] cursor = new int[n + 1];
+            int top = 0;
+            dfn[source] = ++dfn[0];
+            pos[dfn[0]] = source;
+            stack[top++] = source;
+            cursor[source] = g.begin(source);
+            while (top > 0) {
+                int k = stack[top - 1];
+                if (cursor[k] < g.end(k)) {
+                    int v = g.target(cursor[k]++);
+                    if (dfn[v] == 0) {
+                        fa[v] = k;
+                        dfn[v] = ++dfn[0];
+                        pos[dfn[0]] = v;
+                        stack[top++] = v;
+                        cursor[v] = g.begin(v);
+                    }
+                } else {
+                    top--;
+                }
+            }
+        }
+
+        private int[] solve(int source) {
+            dfs(source);
+            int nodeCnt = dfn[0];
+            ModifierDisjointSetUnion dsu = new ModifierDisjointSetUnion(nodeCnt);
+            Arrays.fill(sdsHead, -1);
+
+            for (int i = nodeCnt; i > 1; i--) {
+                int v = pos[i];
+                for (int e = ig.begin(v); e < ig.end(v); e++) {
+                    int vpre = ig.target(e);
+                    if (dfn[vpre] < i) sdom[v] = dfnMin(sdom[v], vpre);
+                    else sdom[v] = dfnMin(sdom[v], sdom[dsu.query(vpre, dfn, sdom)]);
+                }
+                sdsNext[v] = sdsHead[sdom[v]];
+                sdsHead[sdom[v]] = v;
+                for (int x = sdsHead[v]; x != -1; x = sdsNext[x]) {
+                    // 保存(sdom(x)=v,x] 之间sdom最小的u
+                    idom[x] = dsu.query(x, dfn, sdom);
+                }
+                dsu.update(v, fa);
+            }
+
+            for (int i = 2; i <= nodeCnt; i++) {
+                int v = pos[i], u = idom[v];
+                if (sdom[u] == sdom[v]) idom[v] = sdom[v];
+                else idom[v] = idom[u];
+            }
+            return idom;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.util.graph.Edge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * 多源切片器：以所有切片准则同时作为起点，只做一次前向遍历和一次后向遍历，
+ * 重叠的区域不会被重复遍历。
+ * 开启归因时，同一遍历中沿边传播每个节点的准则位图，
+ * 得到到达每个节点的切片准则，位图只在增长时才会继续传播。
+ * 提供{@link EdgeClassifier}时按Horwitz-Reps-Binkley的两阶段算法做上下文敏感切片：
+ * 第一阶段不进入被调方法，借助摘要边跨过调用点；第二阶段不返回调用者，
+ * 从而避免沿不可实现的调用-返回路径扩散到同一方法的其他调用者。
+ * 调用点语句同时充当实参和返回值的节点，因此其实参流入边和返回值流出边由摘要决定能否经过：
+ * 前向遍历时按到达调用点的边决定能否经过返回值流出边，后向遍历时按到达的边决定经过哪些实参流入边，
+ * 经过摘要的边与普通的边一样计入依赖距离。
+ * @param <N> 节点类型
+ * @param <E> 边类型
+ */
+public class MultiSourceSlicer<N, E extends Edge<N>> {
+
+    /**
+     * 不限制切片的依赖距离
+     */
+    public static final int UNBOUNDED = -1;
+
+    /**
+     * 每扩展或传播这么多个节点检查一次是否超时
+     */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /**
+     * 上下文敏感切片中过程间边的分类及摘要边
+     * @param <N> 节点类型
+     * @param <E> 边类型
+     */
+    public interface EdgeClassifier<N, E> {
+
+        /**
+         * @return 是否为从调用点到被调方法入口的边
+         */
+        boolean isCallEdge(E edge);
+
+        /**
+         * @return 是否为从被调方法出口到返回点的边
+         */
+        boolean isReturnEdge(E edge);
+
+        /**
+         * @return 是否为由摘要决定能否跨过的调用点，即至少有一个被调方法的依赖图已知
+         */
+        boolean isSummarized(N node);
+
+        /**
+         * @return 是否为实参流入摘要调用点的边，后向遍历时只能经由摘要到达
+         */
+        boolean isActualIn(E edge);
+
+        /**
+         * @return 是否为摘要调用点的返回值流出的边，前向遍历时只能经由摘要到达
+         */
+        boolean isActualOut(E edge);
+
+        /**
+         * 前向遍历沿edge到达调用点后，摘要允许经过的返回值流出边
+         * @param edge 到达调用点的边，为null表示调用点本身是切片准则
+         */
+        Collection<E> getSummaryOutEdgesOf(N callSite, E edge);
+
+        /**
+         * 后向遍历沿edge到达调用点后，摘要允许经过的实参流入边
+         * @param edge 到达调用点的边，为null表示调用点本身是切片准则
+         */
+        Collection<E> getSummaryInEdgesOf(N callSite, E edge);
+    }
+
+    private final Function<N, ? extends Collection<E>> outEdgesOf;
+
+    private final Function<N, ? extends Collection<E>> inEdgesOf;
+
+    private final ToIntFunction<N> indexer;
+
+    private final int nodeCount;
+
+    private final EdgeClassifier<N, E> classifier;
+
+    /**
+     * @param outEdgesOf 获取节点出边的函数
+     * @param inEdgesOf 获取节点入边的函数
+     * @param indexer 节点到非负整数的映射，不同节点的编号必须不同
+     * @param nodeCount 节点数量的估计值，用于预分配位图
+     */
+    public MultiSourceSlicer(Function<N, ? extends Collection<E>> outEdgesOf,
+                             Function<N, ? extends Collection<E>> inEdgesOf,
+                             ToIntFunction<N> indexer, int nodeCount) {
+        this(outEdgesOf, inEdgesOf, indexer, nodeCount, null);
+    }
+
+    /**
+     * @param classifier 过程间边的分类，为null时做上下文不敏感的切片
+     */
+    public MultiSourceSlicer(Function<N, ? extends Collection<E>> outEdgesOf,
+                             Function<N, ? extends Collection<E>> inEdgesOf,
+                             ToIntFunction<N> indexer, int nodeCount,
+                             EdgeClassifier<N, E> classifier) {
+        this.outEdgesOf = outEdgesOf;
+        this.inEdgesOf = inEdgesOf;
+        this.indexer = indexer;
+        this.nodeCount = nodeCount;
+        this.classifier = classifier;
+    }
+
+    /**
+     * 对所有切片准则做一次前向切片和一次后向切片
+     * @param criteria 切片准则，归因结果中以其下标表示
+     * @param maxDepth 切片节点到切片准则的最大依赖距离，{@link #UNBOUNDED}表示不限制
+     * @param attribution 是否记录到达每个节点的切片准则
+     * @param edgeConsumer 接收切片中的边，同一条边可能在两个方向上各接收一次
+     * @return 切片结果
+     */
+    public SliceContext<N> slice(List<? extends N> criteria, int maxDepth,
+                                 boolean attribution, Consumer<? super E> edgeConsumer) {
+        return slice(criteria, maxDepth, attribution, edgeConsumer, null);
+    }
+
+    /**
+     * @param timeUp 返回true时停止遍历，切片在当前边界截断，
+     *               结果标记为{@link SliceContext#isTruncated()}；为null时不限制
+     */
+    public SliceContext<N> slice(List<? extends N> criteria, int maxDepth,
+                                 boolean attribution, Consumer<? super E> edgeConsumer,
+                                 BooleanSupplier timeUp) {
+        SliceContext<N> context = new SliceContext<>(indexer, nodeCount, attribution);
+        new Traversal(true, maxDepth, context, edgeConsumer, timeUp).run(criteria);
+        new Traversal(false, maxDepth, context, edgeConsumer, timeUp).run(criteria);
+        return context;
+    }
+
+    /**
+     * 一个方向上的遍历。按层遍历：第k层的节点与切片准则的依赖距离为k，
+     * 只扩展距离小于maxDepth的节点，因此切片恰好包含距离不超过maxDepth的节点
+     */
+    private class Traversal {
+
+        private final boolean isForward;
+
+        private final int maxDepth;
+
+        private final SliceContext<N> context;
+
+        private final Consumer<? super E> edgeConsumer;
+
+        private final BitSet inPass = new BitSet(nodeCount);
+
+        private final BitSet expanded = new BitSet(nodeCount);
+
+        /**
+         * 在第二阶段才加入切片的节点
+         */
+        private final BitSet secondPhase = new BitSet(nodeCount);
+
+        private final BitSetArray bits;
+
+        /**
+         * 已扩展的节点若准则位图继续增长，需要再次传播
+         */
+        private final Queue<N> propagation = new ArrayDeque<>();
+
+        private final BitSet queued = new BitSet(nodeCount);
+
+        /**
+         * deferred.get(d)为第一阶段推迟的、依赖距离为d的第二阶段起点
+         */
+        private final List<List<N>> deferred = new ArrayList<>();
+
+        /**
+         * 每个调用点上已被摘要允许经过的边，准则位图增长时沿这些边再次传播
+         */
+        private final Map<N, List<E>> summaryEdges = new HashMap<>();
+
+        private final Set<E> allowed = new HashSet<>();
+
+        private final BooleanSupplier timeUp;
+
+        private int untilTimeCheck = TIME_CHECK_INTERVAL;
+
+        private Traversal(boolean isForward, int maxDepth, SliceContext<N> context,
+                          Consumer<? super E> edgeConsumer, BooleanSupplier timeUp) {
+            this.isForward = isForward;
+            this.maxDepth = maxDepth;
+            this.context = context;
+            this.edgeConsumer = edgeConsumer;
+            this.timeUp = timeUp;
+            this.bits = context.hasAttribution() ? new BitSetArray(nodeCount) : null;
+        }
+
+        private void run(List<? extends N> criteria) {
+            if (bits != null) {
+                for (int i = 0; i < criteria.size(); i++) {
+                    bits.getOrCreate(indexer.applyAsInt(criteria.get(i))).set(i);
+                }
+            }
+            expandLevels(List.of(new ArrayList<>(criteria)), false);
+            if (!deferred.isEmpty() && !context.isTruncated()) {
+                expandLevels(deferred, true);
+            }
+            if (bits != null) {
+                propagate();
+                for (int v = inPass.nextSetBit(0); v >= 0; v = inPass.nextSetBit(v + 1)) {
+                    BitSet b = bits.get(v);
+                    if (b != null) {
+                        context.addCriteria(v, b);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param seeds seeds.get(d)为依赖距离为d的起点
+         */
+        private void expandLevels(List<List<N>> seeds, boolean isSecondPhase) {
+            // pending.get(d)为经过摘要、依赖距离为d时到达的边
+            List<List<E>> pending = new ArrayList<>();
+            List<N> frontier = new ArrayList<>();
+            for (int depth = 0; depth < seeds.size() || depth < pending.size()
+                    || !frontier.isEmpty(); depth++) {
+                if (depth < seeds.size()) {
+                    for (N seed : seeds.get(depth)) {
+                        if (enter(seed, isSecondPhase)) {
+                            frontier.add(seed);
+                        }
+                        summarize(seed, null, depth + 1, pending);
+                    }
+                }
+                if (depth < pending.size()) {
+                    for (E edge : pending.get(depth)) {
+                        edgeConsumer.accept(edge);
+                        N neighbor = isForward ? edge.target() : edge.source();
+                        if (enter(neighbor, isSecondPhase)) {
+                            frontier.add(neighbor);
+                        }
+                        summarize(neighbor, edge, depth + 1, pending);
+                        N callSite = isForward ? edge.source() : edge.target();
+                        addBits(neighbor, bits == null ? null
+                                : bits.get(indexer.applyAsInt(callSite)));
+                    }
+                }
+                if (maxDepth != UNBOUNDED && depth >= maxDepth) {
+                    break;
+                }
+                List<N> next = new ArrayList<>();
+                for (N curr : frontier) {
+                    if (isTimeUp()) {
+                        return;
+                    }
+                    int u = indexer.applyAsInt(curr);
+                    expanded.set(u);
+                    BitSet currBits = bits == null ? null : bits.get(u);
+                    for (E edge : edgesOf(curr)) {
+                        if ((isSecondPhase && ascends(edge)) || bySummary(edge)) {
+                            continue;
+                        }
+                        edgeConsumer.accept(edge);
+                        N neighbor = isForward ? edge.target() : edge.source();
+                        if (!isSecondPhase && descends(edge)) {
+                            // 第一阶段不进入被调方法，留到第二阶段
+                            deferAt(depth + 1, neighbor);
+                        } else {
+                            if (enter(neighbor, isSecondPhase)) {
+                                next.add(neighbor);
+                            }
+                            summarize(neighbor, edge, depth + 2, pending);
+                        }
+                        addBits(neighbor, currBits);
+                    }
+                }
+                frontier = next;
+            }
+        }
+
+        /**
+         * 沿edge到达调用点后，将摘要允许经过的边加入pending
+         * @param depth 经过这些边到达的节点的依赖距离
+         */
+        private void summarize(N node, E edge, int depth, List<List<E>> pending) {
+            if (classifier == null || !classifier.isSummarized(node)) {
+                return;
+            }
+            Collection<E> edges = isForward ?
+                    classifier.getSummaryOutEdgesOf(node, edge) :
+                    classifier.getSummaryInEdgesOf(node, edge);
+            for (E e : edges) {
+                if (allowed.add(e)) {
+                    summaryEdges.computeIfAbsent(node, n -> new ArrayList<>()).add(e);
+                    while (pending.size() <= depth) {
+                        pending.add(new ArrayList<>());
+                    }
+                    pending.get(depth).add(e);
+                }
+            }
+        }
+
+        /**
+         * 将节点加入切片
+         * @return 节点是否第一次在本方向上被访问
+         */
+        private boolean enter(N node, boolean isSecondPhase) {
+            int v = indexer.applyAsInt(node);
+            if (inPass.get(v)) {
+                return false;
+            }
+            inPass.set(v);
+            if (isSecondPhase) {
+                secondPhase.set(v);
+            }
+            context.markReached(node);
+            return true;
+        }
+
+        private void deferAt(int depth, N node) {
+            while (deferred.size() <= depth) {
+                deferred.add(new ArrayList<>());
+            }
+            deferred.get(depth).add(node);
+        }
+
+        private void addBits(N neighbor, BitSet currBits) {
+            if (currBits == null) {
+                return;
+            }
+            int v = indexer.applyAsInt(neighbor);
+            if (bits.addAll(v, currBits) && expanded.get(v) && !queued.get(v)) {
+                queued.set(v);
+                propagation.add(neighbor);
+            }
+        }
+
+        private void propagate() {
+            while (!propagation.isEmpty() && !isTimeUp()) {
+                N curr = propagation.poll();
+                int u = indexer.applyAsInt(curr);
+                queued.clear(u);
+                BitSet currBits = bits.get(u);
+                boolean isSecondPhase = secondPhase.get(u);
+                for (E edge : edgesOf(curr)) {
+                    if ((isSecondPhase && ascends(edge)) || bySummary(edge)) {
+                        continue;
+                    }
+                    addBits(isForward ? edge.target() : edge.source(), currBits);
+                }
+                for (E edge : summaryEdges.getOrDefault(curr, List.of())) {
+                    addBits(isForward ? edge.target() : edge.source(), currBits);
+                }
+            }
+        }
+
+        /**
+         * 每隔若干个节点检查一次是否超时，超时后截断切片
+         */
+        private boolean isTimeUp() {
+            if (context.isTruncated()) {
+                return true;
+            }
+            if (timeUp != null && --untilTimeCheck <= 0) {
+                untilTimeCheck = TIME_CHECK_INTERVAL;
+                if (timeUp.getAsBoolean()) {
+                    context.markTruncated();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Collection<E> edgesOf(N node) {
+            return isForward ? outEdgesOf.apply(node) : inEdgesOf.apply(node);
+        }
+
+        /**
+         * @return 该边是否只能经由摘要经过
+         */
+        private boolean bySummary(E edge) {
+            return classifier != null && (isForward ?
+                    classifier.isActualOut(edge) : classifier.isActualIn(edge));
+        }
+
+        /**
+         * @return 沿该边遍历是否进入被调方法
+         */
+        private boolean descends(E edge) {
+            return classifier != null && (isForward ?
+                    classifier.isCallEdge(edge) : classifier.isReturnEdge(edge));
+        }
+
+        /**
+         * @return 沿该边遍历是否返回调用者
+         */
+        private boolean ascends(E edge) {
+            return classifier != null && (isForward ?
+                    classifier.isReturnEdge(edge) : classifier.isCallEdge(edge));
+        }
+    }
+
+    /**
+     * 按节点编号索引的位图数组，按需扩容
+     */
+    private static class BitSetArray {
+
+        private BitSet[] array;
+
+        private BitSetArray(int capacity) {
+            array = new BitSet[Math.max(capacity, 1)];
+        }
+
+        private BitSet get(int index) {
+            return index < array.length ? array[index] : null;
+        }
+
+        private BitSet getOrCreate(int index) {
+            if (index >= array.length) {
+                array = Arrays.copyOf(array, Math.max(index + 1, array.length * 2));
+            }
+            if (array[index] == null) {
+                array[index] = new BitSet();
+            }
+            return array[index];
+        }
+
+        /**
+         * @return 位图是否因此增长
+         */
+        private boolean addAll(int index, BitSet other) {
+            BitSet target = getOrCreate(index);
+            int before = target.cardinality();
+            target.or(other);
+            return target.cardinality() != before;
+        }
+    }
+}
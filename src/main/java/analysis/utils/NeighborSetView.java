@@ -0,0 +1,106 @@
+package pascal.taie.analysis.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 不可修改的邻居集合视图，元素为CSR中一段去重且升序排列的节点编号，遍历时按需创建节点。
+ * 两个节点之间可能有多条不同类型的边，邻居行由{@link #dedupRows}从边的CSR行生成，
+ * 每个邻居只出现一次，contains通过二分查找判断
+ * @param <E> 节点类型
+ */
+public class NeighborSetView<E> extends AbstractSet<E> {
+
+    private final int[] ids;
+
+    private final int begin;
+
+    private final int end;
+
+    private final IntFunction<E> factory;
+
+    private final ToIntFunction<Object> idOf;
+
+    /**
+     * @param ids 去重且每行升序排列的节点编号
+     * @param begin 起始下标（含）
+     * @param end 结束下标（不含）
+     * @param factory 由节点编号创建节点
+     * @param idOf 节点的编号，不是图中节点时返回-1
+     */
+    public NeighborSetView(int[] ids, int begin, int end,
+                           IntFunction<E> factory, ToIntFunction<Object> idOf) {
+        this.ids = ids;
+        this.begin = begin;
+        this.end = end;
+        this.factory = factory;
+        this.idOf = idOf;
+    }
+
+    /**
+     * 由边的CSR行生成去重并排序后的邻居行
+     * @param edgeIds 行中下标到边编号的映射，为null时下标即边编号
+     * @param ends 每条边的另一端
+     * @param offsets 边的行偏移
+     * @param result 输出邻居的行偏移，长度与offsets相同
+     * @return 邻居
+     */
+    public static int[] dedupRows(int[] edgeIds, int[] ends, int[] offsets, int[] result) {
+        int size = offsets.length - 1;
+        int[] neighbors = new int[ends.length];
+        int count = 0;
+        for (int u = 0; u < size; u++) {
+            int rowBegin = count;
+            result[u] = rowBegin;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                neighbors[count++] = ends[edgeIds == null ? i : edgeIds[i]];
+            }
+            Arrays.sort(neighbors, rowBegin, count);
+            int last = rowBegin;
+            for (int i = rowBegin; i < count; i++) {
+                if (last == rowBegin || neighbors[i] != neighbors[last - 1]) {
+                    neighbors[last++] = neighbors[i];
+                }
+            }
+            count = last;
+        }
+        result[size] = count;
+        return count == neighbors.length ? neighbors : Arrays.copyOf(neighbors, count);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+
+            private int i = begin;
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public E next() {
+                if (i >= end) {
+                    throw new NoSuchElementException();
+                }
+                return factory.apply(ids[i++]);
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int id = idOf.applyAsInt(o);
+        return id >= 0 && Arrays.binarySearch(ids, begin, end, id) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return end - begin;
+    }
+}
@@ -3,134 +3,118 @@ package pascal.taie.analysis.utils;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.ir.stmt.Stmt;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class PDGCalculator {
 
     private int n;
 
-    private List<Integer>[] g, ig, sds, df, cdg;
+    /**
+     * g: 反向图（后继为原图的前驱），ig: 原图，cdg: 控制依赖
+     */
+    private CSRGraph g, ig, cdg;
 
-    private int[] dfn, pos, fa, sdom, idom;
+    private int[] idom;
 
     private CFG<Stmt> cfg;
 
+    private final DominatorEngine engine;
+
     public PDGCalculator(CFG<Stmt> cfg) {
+        this(cfg, AdaptiveDominatorEngine.DEFAULT);
+    }
+
+    public PDGCalculator(CFG<Stmt> cfg, DominatorEngine engine) {
         this.cfg = cfg;
         this.n = cfg.getNumberOfNodes();
-        dfn = new int[n + 1];
-        pos = new int[n + 1];
-        fa = new int[n + 1];
-        sdom = new int[n + 1];
-        idom = new int[n + 1];
-        g = new ArrayList[n + 1];
-        ig = new ArrayList[n + 1];
-        sds = new ArrayList[n + 1];
-        df = new ArrayList[n + 1];
-        cdg = new ArrayList[n + 1];
-        for (int i = 0; i < g.length; i++) {
-            g[i] = new ArrayList<>();
-            ig[i] = new ArrayList<>();
-            sds[i] = new ArrayList<>();
-            df[i] = new ArrayList<>();
-            cdg[i] = new ArrayList<>();
-        }
+        this.engine = engine;
+    }
+
+    /**
+     * 直接在CSR图上计算控制依赖，不需要CFG，例如用于合成图上的测试
+     * @param g 反向图，节点编号为1到n
+     * @param ig 原图，1为入口，n为出口，两图均已包含入口和出口之间的增广边
+     */
+    public PDGCalculator(CSRGraph g, CSRGraph ig, int n, DominatorEngine engine) {
+        this.g = g;
+        this.ig = ig;
+        this.n = n;
+        this.engine = engine;
     }
 
     public void analyse() {
-        transform();
-        calcIdom(n, n);
-        calcDominanceFrontier();
-        calcControlDependence();
+        if (cfg != null) {
+            transform();
+        }
+        // 在反向图上以exit为根计算支配树，即原图的后支配树
+        idom = engine.computeIdom(g, ig, n);
+        calcControlDependence(calcDominanceFrontier());
     }
 
-    public List<Integer>[] getCDG() {
+    /**
+     * @return 控制依赖图，节点编号为CFG中的编号加一，
+     * 节点u的后继是控制依赖于u的节点，按编号升序排列
+     */
+    public CSRGraph getCDG() {
         return this.cdg;
     }
 
     private void transform() {
+        CSRGraph.Builder gBuilder = new CSRGraph.Builder(n + 1, n * 2);
+        CSRGraph.Builder igBuilder = new CSRGraph.Builder(n + 1, n * 2);
         cfg.getNodes().forEach(node -> {
             cfg.getOutEdgesOf(node).forEach(e -> {
                 // The index in cfg starts from 0, but the index of the algorithm starts from 1
                 int src = cfg.getIndex(e.source())+1;
                 int dst = cfg.getIndex(e.target())+1;
-                g[dst].add(src);
-                ig[src].add(dst);
+                gBuilder.addEdge(dst, src);
+                igBuilder.addEdge(src, dst);
             });
         });
-        g[this.n].add(1); // Indexes in the algorithm start from 1
-        ig[1].add(this.n);
-    }
-
-    private int dfnMin(int x, int y) {
-        return (dfn[x] < dfn[y]) ? x : y;
+        gBuilder.addEdge(this.n, 1); // Indexes in the algorithm start from 1
+        igBuilder.addEdge(1, this.n);
+        g = gBuilder.build();
+        ig = igBuilder.build();
     }
 
-    private void dfs(int k) {
-        dfn[k] = ++dfn[0];
-        pos[dfn[0]] = k;
-        for (int i = 0; i < g[k].size(); i++) {
-            if (dfn[g[k].get(i)] == 0) {
-                fa[g[k].get(i)] = k;
-                dfs(g[k].get(i));
-            }
-        }
-    }
-
-    private void calcIdom(int source, int n) {
-        dfs(source);
-        int nodeCnt = dfn[0];
-        ModifierDisjointSetUnion dsu = new ModifierDisjointSetUnion(nodeCnt);
-
-        for (int i = nodeCnt; i > 1; i--) {
-            int v = pos[i];
-            for (int vpre : ig[v]) {
-                if (dfn[vpre] < i) sdom[v] = dfnMin(sdom[v], vpre);
-                else sdom[v] = dfnMin(sdom[v], sdom[dsu.query(vpre, dfn, sdom)]);
-            }
-            sds[sdom[v]].add(v);
-            for (int x : sds[v]) {
-                // 保存(sdom(x)=v,x] 之间sdom最小的u
-                idom[x] = dsu.query(x, dfn, sdom);
-            }
-            dsu.update(v, fa);
-        }
-
-        for (int i = 2; i <= nodeCnt; i++) {
-            int v = pos[i], u = idom[v];
-            if (sdom[u] == sdom[v]) idom[v] = sdom[v];
-            else idom[v] = idom[u];
-        }
-    }
-
-    private void calcDominanceFrontier() {
+    /**
+     * @return 支配边界，节点y的后继是y的支配边界中的节点
+     */
+    private CSRGraph calcDominanceFrontier() {
         for (int i = 1; i <= n; i++) {
             if (idom[i] == 0) {
                 idom[i] = n;
             }
         }
+        CSRGraph.Builder df = new CSRGraph.Builder(n + 1, n);
+        // added[runner] == i 表示i已在runner的支配边界中，避免线性查找去重
+        int[] added = new int[n + 1];
         for (int i = 1; i <= n; i++) {
-            List<Integer> predecessors = ig[i];
-            if (predecessors.size() > 1) { // node has multiple predecessors
-                for (int p : predecessors) {
-                    int runner = p;
+            if (ig.outDegreeOf(i) > 1) { // node has multiple predecessors
+                for (int e = ig.begin(i); e < ig.end(i); e++) {
+                    int runner = ig.target(e);
                     while (runner != idom[i]) {
-                        if (!df[runner].contains(i)) {
-                            df[runner].add(i);
+                        if (added[runner] != i) {
+                            added[runner] = i;
+                            df.addEdge(runner, i);
+                        }
+                        if (runner == n) {
+                            // 已到达根，runner不可达时其idom为根，避免死循环
+                            break;
                         }
                         runner = idom[runner];
                     }
                 }
             }
         }
+        return df.build();
     }
 
-    private void calcControlDependence() {
+    private void calcControlDependence(CSRGraph df) {
+        CSRGraph.Builder builder = new CSRGraph.Builder(n + 1, df.getNumberOfEdges());
         for (int y = 1; y <= n; y++) {
-            for (int x : df[y]) {
-                cdg[x].add(y);
+            for (int e = df.begin(y); e < df.end(y); e++) {
+                builder.addEdge(df.target(e), y);
             }
         }
+        cdg = builder.build();
     }
 }
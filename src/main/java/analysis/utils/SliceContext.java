@@ -0,0 +1,91 @@
+package pascal.taie.analysis.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.ToIntFunction;
+
+/**
+ * 一次切片过程的结果，记录切片包含的节点，以及（可选）到达每个节点的切片准则。
+ * 节点通过indexer映射为非负整数，状态保存在位图中，
+ * 每次切片使用独立的上下文，因此多个切片过程可以并发执行。
+ * @param <N> 节点类型
+ */
+public class SliceContext<N> {
+
+    private static final BitSet EMPTY = new BitSet(0);
+
+    private final ToIntFunction<N> indexer;
+
+    /**
+     * 已加入切片的节点
+     */
+    private final BitSet reached;
+
+    /**
+     * criteria[i]表示编号为i的节点被哪些切片准则到达，为null时表示不记录
+     */
+    private BitSet[] criteria;
+
+    /**
+     * 切片是否因超时在当前边界被截断
+     */
+    private boolean truncated;
+
+    /**
+     * @param indexer 节点到非负整数的映射，不同节点的编号必须不同
+     * @param nodeCount 节点数量的估计值，用于预分配位图
+     * @param attribution 是否记录到达每个节点的切片准则
+     */
+    public SliceContext(ToIntFunction<N> indexer, int nodeCount, boolean attribution) {
+        this.indexer = indexer;
+        this.reached = new BitSet(nodeCount);
+        this.criteria = attribution ? new BitSet[Math.max(nodeCount, 1)] : null;
+    }
+
+    public int indexOf(N node) {
+        return indexer.applyAsInt(node);
+    }
+
+    public boolean isReached(N node) {
+        return reached.get(indexOf(node));
+    }
+
+    public void markReached(N node) {
+        reached.set(indexOf(node));
+    }
+
+    public boolean hasAttribution() {
+        return criteria != null;
+    }
+
+    /**
+     * @return 到达该节点的切片准则在准则列表中的下标集合，不可修改
+     */
+    public BitSet getCriteriaOf(N node) {
+        int index = indexOf(node);
+        if (criteria == null || index >= criteria.length
+                || criteria[index] == null) {
+            return EMPTY;
+        }
+        return criteria[index];
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    void markTruncated() {
+        truncated = true;
+    }
+
+    void addCriteria(int index, BitSet bits) {
+        if (index >= criteria.length) {
+            criteria = Arrays.copyOf(criteria,
+                    Math.max(index + 1, criteria.length * 2));
+        }
+        if (criteria[index] == null) {
+            criteria[index] = new BitSet();
+        }
+        criteria[index].or(bits);
+    }
+}
@@ -0,0 +1,180 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.util.graph.Edge;
+import pascal.taie.util.graph.Graph;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 流式导出切片的dot文件，输出格式与Tai-e的DotDumper相同。
+ * 节点和边逐条写入带大缓冲区的文件通道，不在内存中拼接整个文件；
+ * 每个节点的标签只计算并转义一次，边只引用节点编号。
+ * 可选地以gzip压缩输出，此时文件名应以".gz"结尾。
+ */
+public class SliceDotWriter implements Closeable {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 切片节点的全局属性
+     */
+    public static final String NODE_ATTRIBUTES = "shape=box,style=filled,color=\".3 .2 1.0\"";
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String INDENT = "  ";
+
+    private final Writer out;
+
+    /**
+     * @param file 输出文件，已存在时被覆盖
+     * @param compress 是否以gzip压缩输出
+     */
+    public SliceDotWriter(File file, boolean compress) throws IOException {
+        OutputStream stream = Channels.newOutputStream(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        try {
+            if (compress) {
+                stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+            }
+            out = new BufferedWriter(
+                    new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            out.write("digraph G {\n");
+        } catch (IOException | RuntimeException e) {
+            // 构造失败时调用者拿不到writer，需在此关闭已打开的文件
+            try {
+                stream.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 导出整个图，节点和边的顺序与DotDumper相同
+     * @param nodeIds 节点在dot文件中的编号
+     * @param nodeLabeler 节点的标签，须已转义，见{@link #escape(String)}
+     * @param edgeLabeler 边的标签，为null时不输出
+     * @param edgeAttributer 边的其他属性，例如"style=dashed,color=blue"，为空时不输出
+     */
+    public static <N> void dump(Graph<N> graph, File file, boolean compress,
+                                String globalNodeAttributes,
+                                ToIntFunction<N> nodeIds,
+                                Function<N, String> nodeLabeler,
+                                Function<Edge<N>, String> edgeLabeler,
+                                Function<Edge<N>, String> edgeAttributer) throws IOException {
+        try (SliceDotWriter writer = new SliceDotWriter(file, compress)) {
+            writer.writeGlobalNodeAttributes(globalNodeAttributes);
+            for (N node : graph) {
+                writer.writeNode(nodeIds.applyAsInt(node), nodeLabeler.apply(node));
+            }
+            for (N node : graph) {
+                int source = nodeIds.applyAsInt(node);
+                for (Edge<N> edge : graph.getOutEdgesOf(node)) {
+                    writer.writeEdge(source, nodeIds.applyAsInt(edge.target()),
+                            edgeLabeler.apply(edge), edgeAttributer.apply(edge));
+                }
+            }
+        }
+    }
+
+    public void writeGlobalNodeAttributes(String attributes) throws IOException {
+        out.write(INDENT);
+        out.write("node [");
+        out.write(attributes);
+        out.write("];\n");
+    }
+
+    /**
+     * @param label 已转义的标签
+     */
+    public void writeNode(int id, String label) throws IOException {
+        out.write(INDENT);
+        writeId(id);
+        if (label != null) {
+            out.write(" [label=\"");
+            out.write(label);
+            out.write("\"]");
+        }
+        out.write(";\n");
+    }
+
+    /**
+     * @param label 已转义的标签，为null时不输出
+     * @param attributes 其他属性，为null或空时不输出
+     */
+    public void writeEdge(int source, int target, String label,
+                          String attributes) throws IOException {
+        out.write(INDENT);
+        writeId(source);
+        out.write(" -> ");
+        writeId(target);
+        boolean hasAttributes = attributes != null && !attributes.isEmpty();
+        if (label != null || hasAttributes) {
+            out.write(" [");
+            if (label != null) {
+                out.write("label=\"");
+                out.write(label);
+                out.write('"');
+                if (hasAttributes) {
+                    out.write(',');
+                }
+            }
+            if (hasAttributes) {
+                out.write(attributes);
+            }
+            out.write(']');
+        }
+        out.write(";\n");
+    }
+
+    private void writeId(int id) throws IOException {
+        out.write('"');
+        out.write(Integer.toString(id));
+        out.write('"');
+    }
+
+    /**
+     * 转义标签中的双引号，不含双引号时直接返回原字符串
+     */
+    public static String escape(String label) {
+        int i = label.indexOf('"');
+        if (i < 0) {
+            return label;
+        }
+        StringBuilder sb = new StringBuilder(label.length() + 8);
+        sb.append(label, 0, i);
+        for (; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c == '"') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("}\n");
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -4,67 +4,156 @@ package pascal.taie.analysis.utils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.ir.exp.InvokeDynamic;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.StringReps;
+import pascal.taie.language.classes.Subsignature;
 import pascal.taie.util.collection.Maps;
-import pascal.taie.util.collection.Sets;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * 敏感API注册表，进程内只从classpath加载并解析一次methods.json，
+ * 之后所有分析共享同一个不可修改的实例
+ */
 public class SensAPIHandler {
 
-    private final static String PATH = "src/main/resources/methods.txt";
+    private static final Logger logger = LogManager.getLogger(SensAPIHandler.class);
 
+    private final static String RESOURCE = "methods.json";
+
+    /**
+     * 旧版本中相对于工作目录的路径，classpath中找不到时使用
+     */
     private final static String JSONPATH = "src/main/resources/methods.json";
 
     @Getter
-    private Set<String> sensitiveMethods = Sets.newSet();
+    private final Set<String> sensitiveMethods;
 
     @Getter
-    private List<SensitiveCategory> readFromJSON = new ArrayList<>();
+    private final List<SensitiveCategory> readFromJSON;
+
+    /**
+     * API签名到分类信息的映射
+     */
+    private final Map<String, SensitiveAPIInfo> apiInfos;
+
+    /**
+     * 注册表内容的哈希，按签名排序后计算，不受methods.json中条目顺序的影响，
+     * 用于增量切片时判断敏感API是否变化
+     */
+    @Getter
+    private final long contentHash;
+
+    /**
+     * 加载时预先解析签名：子签名 -> 声明类名 -> 分类信息，
+     * 查询时直接使用MethodRef中已有的子签名和类名，不需要拼接签名字符串
+     */
+    private final Map<Subsignature, Map<String, SensitiveAPIInfo>> apiIndex;
 
-    private Map<String, Map<String, String>> apiDetailsMap = Maps.newConcurrentMap();
+    /**
+     * 方法引用的查询结果缓存，Tai-e中的MethodRef是唯一化的，
+     * 因此同一被调方法的所有调用点共享一个缓存项
+     */
+    private final Map<MethodRef, SensitiveAPIInfo> resolved = Maps.newConcurrentMap();
 
-    public SensAPIHandler() {
-        readJSON();
-        initial();
+    /**
+     * 缓存中表示非敏感API的占位值
+     */
+    private static final SensitiveAPIInfo NOT_SENSITIVE =
+            new SensitiveAPIInfo(null, null, null, null);
+
+    private SensAPIHandler() {
+        readFromJSON = Collections.unmodifiableList(readJSON());
+        apiInfos = initial(readFromJSON);
+        apiIndex = index(apiInfos);
+        contentHash = hashOf(apiInfos);
+        sensitiveMethods = Collections.unmodifiableSet(apiInfos.keySet());
+        logger.info("Loaded {} sensitive APIs in {} categories",
+                apiInfos.size(), readFromJSON.size());
     }
 
-    private void readJSON() {
-        try {
-            File file = new File(JSONPATH);
-            ObjectMapper mapper = new ObjectMapper();
-            readFromJSON = mapper.readValue(file, new TypeReference<List<SensitiveCategory>>() {});
+    /**
+     * @return 全局共享的敏感API注册表，首次调用时加载
+     */
+    public static SensAPIHandler get() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final SensAPIHandler INSTANCE = new SensAPIHandler();
+    }
+
+    private static List<SensitiveCategory> readJSON() {
+        ObjectMapper mapper = new ObjectMapper();
+        TypeReference<List<SensitiveCategory>> type = new TypeReference<>() {};
+        try (InputStream in = SensAPIHandler.class.getClassLoader()
+                .getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                return mapper.readValue(in, type);
+            }
+            logger.warn("{} is not on the classpath, fall back to {}",
+                    RESOURCE, JSONPATH);
+            return mapper.readValue(new File(JSONPATH), type);
         } catch (IOException e) {
-            System.out.println("load json error, check!");
+            logger.error("Failed to load sensitive APIs from {}", RESOURCE);
             throw new RuntimeException(e);
         }
     }
 
-    private void initial() {
-        for (SensitiveCategory category : readFromJSON) {
+    private static Map<String, SensitiveAPIInfo> initial(List<SensitiveCategory> categories) {
+        Map<String, SensitiveAPIInfo> infos = Maps.newMap();
+        for (SensitiveCategory category : categories) {
             for (FineGrainedType type : category.getFineGrainedType()) {
-                List<String> apiNames = type.getApiNames();
-                sensitiveMethods.addAll(apiNames);
-                apiNames.stream().forEach(name -> {
-                    Map<String, String> details = Maps.newConcurrentMap();
-                    details.put("categoryName", category.getCategoryName());
-                    details.put("shortTitle", type.getShortCode());
-                    details.put("subcategoryName", type.getSubcategoryName());
-                    apiDetailsMap.put(name, details);
-                });
+                for (String name : type.getApiNames()) {
+                    infos.put(name, new SensitiveAPIInfo(name,
+                            category.getCategoryName(), type.getShortCode(),
+                            type.getSubcategoryName()));
+                }
             }
         }
+        return Collections.unmodifiableMap(infos);
+    }
+
+    private static Map<Subsignature, Map<String, SensitiveAPIInfo>> index(
+            Map<String, SensitiveAPIInfo> infos) {
+        Map<Subsignature, Map<String, SensitiveAPIInfo>> index = Maps.newMap();
+        infos.forEach((signature, info) -> {
+            Subsignature subsig = Subsignature.get(
+                    StringReps.getSubsignatureOf(signature));
+            index.computeIfAbsent(subsig, __ -> Maps.newMap())
+                    .put(StringReps.getClassNameOf(signature), info);
+        });
+        return index;
     }
 
-    public MethodRef getMethodRef(Invoke invoke) {
+    private static long hashOf(Map<String, SensitiveAPIInfo> infos) {
+        long hash = 0xcbf29ce484222325L; // FNV-1a
+        for (String signature : new TreeSet<>(infos.keySet())) {
+            SensitiveAPIInfo info = infos.get(signature);
+            String entry = signature + '\t' + info.getCategoryName()
+                    + '\t' + info.getSubcategoryName()
+                    + '\t' + info.getShortTitle() + '\n';
+            for (int i = 0; i < entry.length(); i++) {
+                hash ^= entry.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    public static MethodRef getMethodRef(Invoke invoke) {
         InvokeExp exp = invoke.getInvokeExp();
         MethodRef ref = exp instanceof InvokeDynamic ?
                 ((InvokeDynamic) exp).getBootstrapMethodRef():
@@ -72,12 +161,49 @@ public class SensAPIHandler {
         return ref;
     }
 
+    /**
+     * 查询API的分类信息
+     * @param signature
+     * @return 不是敏感API时返回null
+     */
+    public SensitiveAPIInfo getAPIInfo(String signature) {
+        return apiInfos.get(signature);
+    }
+
+    /**
+     * 查询调用点调用的API的分类信息
+     * @return 不是敏感API时返回null
+     */
+    public SensitiveAPIInfo getAPIInfo(Invoke invoke) {
+        return getAPIInfo(getMethodRef(invoke));
+    }
+
+    /**
+     * 查询方法引用的分类信息，每个方法引用只解析一次
+     * @return 不是敏感API时返回null
+     */
+    public SensitiveAPIInfo getAPIInfo(MethodRef ref) {
+        SensitiveAPIInfo info = resolved.get(ref);
+        if (info == null) {
+            info = resolve(ref);
+            resolved.putIfAbsent(ref, info);
+        }
+        return info == NOT_SENSITIVE ? null : info;
+    }
+
+    private SensitiveAPIInfo resolve(MethodRef ref) {
+        Map<String, SensitiveAPIInfo> byClass = apiIndex.get(ref.getSubsignature());
+        SensitiveAPIInfo info = byClass == null ? null :
+                byClass.get(ref.getDeclaringClass().getName());
+        return info == null ? NOT_SENSITIVE : info;
+    }
+
     /**
      * 查询API的行为大类
      * @param signature
      */
     public String getAPICategory(String signature) {
-        return apiDetailsMap.get(signature).get("categoryName");
+        return apiInfos.get(signature).getCategoryName();
     }
 
     /**
@@ -85,21 +211,34 @@ public class SensAPIHandler {
      * @param signature
      */
     public String getAPIType(String signature) {
-        return apiDetailsMap.get(signature).get("subcategoryName");
+        return apiInfos.get(signature).getSubcategoryName();
     }
 
     public String getAPIShortCode(String signature) {
-        return apiDetailsMap.get(signature).get("shortTitle");
+        return apiInfos.get(signature).getShortTitle();
     }
 
+    /**
+     * 判断调用点的被调方法签名是否为signature，即"&lt;类名: 子签名&gt;"，
+     * 逐段比较类名和子签名，不拼接签名字符串
+     */
     public boolean matchInvokeWithSignature(Invoke invoke, String signature) {
-        return getMethodRef(invoke).toString().equals(signature);
+        MethodRef ref = getMethodRef(invoke);
+        String className = ref.getDeclaringClass().getName();
+        String subsig = ref.getSubsignature().toString();
+        return signature.length() == className.length() + subsig.length() + 4
+                && signature.charAt(0) == '<'
+                && signature.startsWith(className, 1)
+                && signature.startsWith(": ", className.length() + 1)
+                && signature.startsWith(subsig, className.length() + 3)
+                && signature.charAt(signature.length() - 1) == '>';
     }
 
     public boolean isSensitive(Invoke invoke) {
-        return sensitiveMethods.contains(getMethodRef(invoke).toString());
+        return isSensitive(getMethodRef(invoke));
     }
 
-
-
+    public boolean isSensitive(MethodRef ref) {
+        return getAPIInfo(ref) != null;
+    }
 }
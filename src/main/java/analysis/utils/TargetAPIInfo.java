@@ -1,14 +1,16 @@
 package pascal.taie.analysis.utils;
 
 import lombok.Getter;
-import lombok.Setter;
 
-@Getter @Setter
+/**
+ * 一个敏感API的分类信息，加载后不可修改
+ */
+@Getter
 public class SensitiveAPIInfo {
-    private String apiName;
-    private String categoryName;
-    private String shortTitle;
-    private String subcategoryName;
+    private final String apiName;
+    private final String categoryName;
+    private final String shortTitle;
+    private final String subcategoryName;
 
     public SensitiveAPIInfo(String apiName, String categoryName, String shortTitle, String subcategoryName) {
         this.apiName = apiName;
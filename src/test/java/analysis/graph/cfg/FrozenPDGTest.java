@@ -0,0 +1,125 @@
+package pascal.taie.analysis.graph.cfg;
+
+import org.junit.jupiter.api.Test;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Nop;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrozenPDGTest {
+
+    @Test
+    void testRoundTripOfSinglePDGBuilder() {
+        for (IR ir : TestPrograms.irsOf(TestPrograms.BRANCHES)) {
+            checkRoundTrip(SinglePDGBuilder.analyze(ir));
+        }
+    }
+
+    @Test
+    void testRoundTripOfPDGBuilder() {
+        for (IR ir : TestPrograms.irsOf(TestPrograms.BRANCHES)) {
+            CFG<Stmt> pdg = ir.getResult(PDGBuilder.ID);
+            checkRoundTrip(pdg);
+            // CFG的entry和exit映射为PDG自己的entry和exit
+            CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+            assertFalse(pdg.hasNode(cfg.getEntry()));
+            assertFalse(pdg.hasNode(cfg.getExit()));
+        }
+    }
+
+    @Test
+    void testFreezeRejectsForeignNode() {
+        IR ir = TestPrograms.irsOf(TestPrograms.BRANCHES).get(0);
+        StmtCFG pdg = new StmtCFG(ir);
+        pdg.setEntry(new Nop());
+        pdg.setExit(new Nop());
+        pdg.addNode(new Nop());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> FrozenPDG.freeze(pdg));
+        assertTrue(e.getMessage().contains(ir.getMethod().toString()));
+    }
+
+    @Test
+    void testFreezeRejectsEdgeToForeignNode() {
+        IR ir = TestPrograms.irsOf(TestPrograms.BRANCHES).get(0);
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        StmtCFG pdg = new StmtCFG(ir);
+        pdg.setEntry(new Nop());
+        pdg.setExit(new Nop());
+        pdg.addEdge(new CFGEdge<>(CFGEdge.Kind.CONTROL_DEPENDENCE,
+                pdg.getEntry(), cfg.getExit()));
+        assertThrows(IllegalArgumentException.class, () -> FrozenPDG.freeze(pdg));
+    }
+
+    /**
+     * 检查冻结的PDG的邻居与边一致，并且复制为可变的PDG后再次冻结得到相同的图
+     */
+    private static void checkRoundTrip(CFG<Stmt> pdg) {
+        FrozenPDG frozen = assertInstanceOf(FrozenPDG.class, pdg);
+        for (Stmt node : frozen) {
+            assertSame(node, frozen.getNode(frozen.getIndex(node)));
+            Set<Stmt> succs = new HashSet<>();
+            frozen.getOutEdgesOf(node).forEach(edge -> {
+                assertSame(node, edge.source());
+                assertTrue(frozen.hasEdge(node, edge.target()));
+                // 边在遍历时才创建，contains按起点、类型和终点判断
+                assertTrue(frozen.getOutEdgesOf(node).contains(
+                        new CFGEdge<>(edge.getKind(), edge.source(), edge.target())));
+                assertTrue(frozen.getInEdgesOf(edge.target()).contains(edge));
+                assertFalse(frozen.getInEdgesOf(node).contains(edge)
+                        && !frozen.hasEdge(node, node));
+                succs.add(edge.target());
+            });
+            assertEquals(succs, new HashSet<>(frozen.getSuccsOf(node)));
+            assertEquals(succs.size(), frozen.getSuccsOf(node).size());
+            succs.forEach(succ -> assertTrue(frozen.getSuccsOf(node).contains(succ)));
+            Set<Stmt> preds = new HashSet<>();
+            frozen.getInEdgesOf(node).forEach(edge -> {
+                assertSame(node, edge.target());
+                preds.add(edge.source());
+            });
+            assertEquals(preds, new HashSet<>(frozen.getPredsOf(node)));
+            assertEquals(preds.size(), frozen.getPredsOf(node).size());
+        }
+
+        StmtCFG copy = new StmtCFG(frozen.getIR());
+        copy.setEntry(frozen.getEntry());
+        copy.setExit(frozen.getExit());
+        for (Stmt node : frozen) {
+            if (!frozen.isEntry(node) && !frozen.isExit(node)) {
+                copy.addNode(node);
+            }
+            frozen.getOutEdgesOf(node).forEach(copy::addEdge);
+        }
+        FrozenPDG refrozen = FrozenPDG.freeze(copy);
+        assertSame(frozen.getEntry(), refrozen.getEntry());
+        assertSame(frozen.getExit(), refrozen.getExit());
+        assertEquals(new HashSet<>(frozen.getNodes()), new HashSet<>(refrozen.getNodes()));
+        assertEquals(frozen.getNumberOfEdges(), refrozen.getNumberOfEdges());
+        assertEquals(edgesOf(frozen), edgesOf(refrozen));
+    }
+
+    /**
+     * @return 每条边（起点、类型、终点）出现的次数
+     */
+    private static Map<List<Object>, Integer> edgesOf(CFG<Stmt> pdg) {
+        Map<List<Object>, Integer> edges = new HashMap<>();
+        for (Stmt node : pdg) {
+            pdg.getOutEdgesOf(node).forEach(edge -> edges.merge(
+                    List.of(edge.source(), edge.getKind(), edge.target()), 1, Integer::sum));
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,195 @@
+package pascal.taie.analysis.graph.cfg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PDGStoreTest {
+
+    private static final String FINGERPRINT = PDGBuilder.ID;
+
+    @TempDir
+    File tempDir;
+
+    private File file() {
+        return new File(tempDir, "test.pdgs");
+    }
+
+    private static List<FrozenPDG> pdgs() {
+        List<FrozenPDG> pdgs = new ArrayList<>();
+        for (IR ir : TestPrograms.irsOf(TestPrograms.BRANCHES)) {
+            pdgs.add(assertInstanceOf(FrozenPDG.class, ir.getResult(PDGBuilder.ID)));
+        }
+        return pdgs;
+    }
+
+    private static PDGStore open(File file, String fingerprint) {
+        PDGStore store = PDGStore.open(file, fingerprint);
+        assertNotNull(store);
+        return store;
+    }
+
+    private void saveAll(List<FrozenPDG> pdgs) {
+        PDGStore store = open(file(), FINGERPRINT);
+        pdgs.forEach(store::save);
+        store.close();
+    }
+
+    private static FrozenPDG load(PDGStore store, FrozenPDG pdg) {
+        return store.load(pdg.getIR(), pdg.getEntry(), pdg.getExit());
+    }
+
+    @Test
+    void testLoadAfterReopen() {
+        List<FrozenPDG> pdgs = pdgs();
+        saveAll(pdgs);
+        PDGStore store = open(file(), FINGERPRINT);
+        for (FrozenPDG pdg : pdgs) {
+            checkSame(pdg, load(store, pdg));
+        }
+        store.close();
+    }
+
+    @Test
+    void testMissingMethod() {
+        List<FrozenPDG> pdgs = pdgs();
+        saveAll(pdgs.subList(1, pdgs.size()));
+        PDGStore store = open(file(), FINGERPRINT);
+        assertNull(load(store, pdgs.get(0)));
+        store.close();
+    }
+
+    @Test
+    void testFingerprintChangeInvalidates() {
+        List<FrozenPDG> pdgs = pdgs();
+        saveAll(pdgs);
+        String other = FINGERPRINT + "-other";
+        for (FrozenPDG pdg : pdgs) {
+            assertNotEquals(PDGStore.contentHashOf(pdg.getIR(), FINGERPRINT),
+                    PDGStore.contentHashOf(pdg.getIR(), other));
+        }
+        PDGStore store = open(file(), other);
+        for (FrozenPDG pdg : pdgs) {
+            assertNull(load(store, pdg));
+        }
+        // 以新的选项重新保存后，旧记录被覆盖
+        pdgs.forEach(store::save);
+        store.close();
+        store = open(file(), other);
+        for (FrozenPDG pdg : pdgs) {
+            checkSame(pdg, load(store, pdg));
+        }
+        store.close();
+    }
+
+    @Test
+    void testFingerprintCoversCFGOptions() {
+        String fingerprint = PDGStore.fingerprintOf(PDGBuilder.ID, Map.of());
+        assertEquals(fingerprint, PDGStore.fingerprintOf(PDGBuilder.ID,
+                Map.of("pta", "cs:2-obj")));
+        assertNotEquals(fingerprint, PDGStore.fingerprintOf(PDGBuilder.ID,
+                Map.of(CFGBuilder.ID, "exception:all")));
+        assertNotEquals(fingerprint, PDGStore.fingerprintOf(PDGBuilder.ID,
+                Map.of(ThrowAnalysis.ID, "algorithm:pta")));
+    }
+
+    @Test
+    void testContentHashIsStable() {
+        for (FrozenPDG pdg : pdgs()) {
+            assertEquals(PDGStore.contentHashOf(pdg.getIR(), FINGERPRINT),
+                    PDGStore.contentHashOf(pdg.getIR(), FINGERPRINT));
+        }
+    }
+
+    @Test
+    void testTruncatesIncompleteRecord() throws IOException {
+        List<FrozenPDG> pdgs = pdgs();
+        saveAll(pdgs);
+        long length = file().length();
+        // 模拟上次运行在写入记录时中断：记录长度为100，实际只写了2个字节
+        ByteBuffer partial = ByteBuffer.allocate(Integer.BYTES + 2);
+        partial.putInt(100).put((byte) 1).put((byte) 2);
+        Files.write(file().toPath(), partial.array(), StandardOpenOption.APPEND);
+        PDGStore store = open(file(), FINGERPRINT);
+        assertEquals(length, file().length());
+        for (FrozenPDG pdg : pdgs) {
+            checkSame(pdg, load(store, pdg));
+        }
+        store.close();
+    }
+
+    @Test
+    void testCompactsStaleRecords() {
+        List<FrozenPDG> pdgs = pdgs();
+        for (int i = 0; i < 3; i++) {
+            saveAll(pdgs);
+        }
+        long length = file().length();
+        PDGStore store = open(file(), FINGERPRINT);
+        assertTrue(file().length() < length);
+        for (FrozenPDG pdg : pdgs) {
+            checkSame(pdg, load(store, pdg));
+        }
+        store.close();
+    }
+
+    @Test
+    void testRecreatesForeignFile() throws IOException {
+        List<FrozenPDG> pdgs = pdgs();
+        Files.writeString(file().toPath(), "digraph G {}\n");
+        PDGStore store = open(file(), FINGERPRINT);
+        for (FrozenPDG pdg : pdgs) {
+            assertNull(load(store, pdg));
+        }
+        store.close();
+        saveAll(pdgs);
+        store = open(file(), FINGERPRINT);
+        checkSame(pdgs.get(0), load(store, pdgs.get(0)));
+        store.close();
+    }
+
+    /**
+     * 检查读出的PDG与保存的PDG有相同的节点和边
+     */
+    private static void checkSame(FrozenPDG expected, FrozenPDG actual) {
+        assertNotNull(actual);
+        assertSame(expected.getEntry(), actual.getEntry());
+        assertSame(expected.getExit(), actual.getExit());
+        assertEquals(new HashSet<>(expected.getNodes()), new HashSet<>(actual.getNodes()));
+        assertEquals(expected.getNumberOfEdges(), actual.getNumberOfEdges());
+        assertEquals(edgesOf(expected), edgesOf(actual));
+    }
+
+    /**
+     * @return 每条边（起点、类型、终点）出现的次数
+     */
+    private static Map<List<Object>, Integer> edgesOf(CFG<Stmt> pdg) {
+        Map<List<Object>, Integer> edges = new HashMap<>();
+        for (Stmt node : pdg) {
+            pdg.getOutEdgesOf(node).forEach(edge -> edges.merge(
+                    List.of(edge.source(), edge.getKind(), edge.target()), 1, Integer::sum));
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,43 @@
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.World;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.List;
+
+/**
+ * 测试用的程序，由Tai-e从src/test/resources/pdg中的源文件构建，所有测试共享同一个World
+ */
+final class TestPrograms {
+
+    static final String CLASS_PATH = "src/test/resources/pdg";
+
+    static final String BRANCHES = "Branches";
+
+    private static boolean built;
+
+    private TestPrograms() {
+    }
+
+    /**
+     * @return 类中所有非抽象方法的IR，已计算cfg、def-use和pdg
+     */
+    static synchronized List<IR> irsOf(String className) {
+        if (!built) {
+            pascal.taie.Main.main(new String[]{
+                    "-pp", "-cp", CLASS_PATH,
+                    "--input-classes", BRANCHES,
+                    "-a", PDGBuilder.ID + "=dump:false"
+            });
+            built = true;
+        }
+        JClass jclass = World.get().getClassHierarchy().getClass(className);
+        return jclass.getDeclaredMethods()
+                .stream()
+                .filter(method -> !method.isAbstract() && !method.isNative())
+                .map(JMethod::getIR)
+                .toList();
+    }
+}
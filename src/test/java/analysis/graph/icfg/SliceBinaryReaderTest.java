@@ -0,0 +1,217 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pascal.taie.analysis.blackcat.SensitiveAPIInfo;
+import pascal.taie.analysis.graph.cfg.CFGEdge;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Nop;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.Indexer;
+import pascal.taie.util.SimpleIndexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SliceBinaryReaderTest {
+
+    private static final String CALLER = "<测试.Caller: void run(java.lang.String)>";
+
+    private static final String CALLEE = "<Callee: int id(int)>";
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * 手工构建的切片，节点按加入顺序编号
+     */
+    private static class TestSlice implements SliceBinaryWriter.Slice {
+
+        private final Map<Stmt, List<ICFGEdge<Stmt>>> outEdges = new LinkedHashMap<>();
+
+        private final Map<Stmt, String> methods = new LinkedHashMap<>();
+
+        private final Set<Stmt> entries;
+
+        private final Set<Stmt> exits;
+
+        private TestSlice(Set<Stmt> entries, Set<Stmt> exits) {
+            this.entries = entries;
+            this.exits = exits;
+        }
+
+        private void addNode(Stmt node, String method) {
+            outEdges.put(node, new ArrayList<>());
+            methods.put(node, method);
+        }
+
+        private void addEdge(ICFGEdge<Stmt> edge) {
+            outEdges.get(edge.source()).add(edge);
+        }
+
+        @Override
+        public Set<Stmt> getNodes() {
+            return outEdges.keySet();
+        }
+
+        @Override
+        public Collection<? extends ICFGEdge<Stmt>> getOutEdgesOf(Stmt node) {
+            return outEdges.get(node);
+        }
+
+        @Override
+        public boolean isMethodEntry(Stmt node) {
+            return entries.contains(node);
+        }
+
+        @Override
+        public boolean isMethodExit(Stmt node) {
+            return exits.contains(node);
+        }
+
+        @Override
+        public String getMethodSignatureOf(Stmt node) {
+            return methods.get(node);
+        }
+
+        @Override
+        public SensitiveAPIInfo getAPIInfo(Invoke invoke) {
+            return null;
+        }
+    }
+
+    /**
+     * 调用者的入口控制两条语句，第二条语句调用被调方法，被调方法的出口返回到调用者的出口
+     */
+    private static TestSlice newSlice() {
+        Stmt callerEntry = new Nop();
+        Stmt s1 = new Nop();
+        Stmt s2 = new Nop();
+        Stmt callerExit = new Nop();
+        Stmt calleeEntry = new Nop();
+        Stmt calleeExit = new Nop();
+        TestSlice slice = new TestSlice(Set.of(callerEntry, calleeEntry),
+                Set.of(callerExit, calleeExit));
+        for (Stmt node : List.of(callerEntry, s1, s2, callerExit)) {
+            slice.addNode(node, CALLER);
+        }
+        slice.addNode(calleeEntry, CALLEE);
+        slice.addNode(calleeExit, CALLEE);
+        slice.addEdge(normal(CFGEdge.Kind.CONTROL_DEPENDENCE, callerEntry, s1));
+        slice.addEdge(normal(CFGEdge.Kind.CONTROL_DEPENDENCE, callerEntry, s2));
+        // 同一对节点之间不同类型的边都要保留
+        slice.addEdge(normal(CFGEdge.Kind.DEF_USE, s1, s2));
+        slice.addEdge(normal(CFGEdge.Kind.CONTROL_DEPENDENCE, s1, s2));
+        slice.addEdge(new CallEdge<>(s2, calleeEntry, null));
+        slice.addEdge(normal(CFGEdge.Kind.CONTROL_DEPENDENCE, calleeEntry, calleeExit));
+        slice.addEdge(new ReturnEdge<>(calleeExit, callerExit, s2, Set.of(), Set.of()));
+        return slice;
+    }
+
+    private static ICFGEdge<Stmt> normal(CFGEdge.Kind kind, Stmt source, Stmt target) {
+        return new NormalEdge<>(new CFGEdge<>(kind, source, target));
+    }
+
+    private static String kindNameOf(ICFGEdge<Stmt> edge) {
+        if (edge instanceof CallEdge) {
+            return SliceBinaryReader.CALL;
+        } else if (edge instanceof ReturnEdge) {
+            return SliceBinaryReader.RETURN;
+        } else {
+            return ((NormalEdge<Stmt>) edge).getCFGEdge().getKind().name();
+        }
+    }
+
+    private File write(TestSlice slice, Indexer<Stmt> indexer) throws IOException {
+        slice.getNodes().forEach(indexer::getIndex);
+        File file = new File(tempDir, "test-slice.bin");
+        SliceBinaryWriter.write(slice, file, indexer);
+        return file;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        TestSlice slice = newSlice();
+        Indexer<Stmt> indexer = new SimpleIndexer<>();
+        SliceBinaryReader reader = SliceBinaryReader.open(write(slice, indexer));
+
+        assertEquals(slice.getNodes().size(), reader.getNumberOfNodes());
+        int edgeCount = 0;
+        for (Stmt node : slice.getNodes()) {
+            int u = indexer.getIndex(node);
+            String method = slice.getMethodSignatureOf(node);
+            assertEquals(method, reader.getString(reader.getColumn(SliceBinaryReader.METHOD, u)));
+            assertNull(reader.getString(reader.getColumn(SliceBinaryReader.SENS, u)));
+            assertNull(reader.getString(reader.getColumn(SliceBinaryReader.CATEGORY, u)));
+            if (slice.isMethodEntry(node) || slice.isMethodExit(node)) {
+                assertEquals(slice.isMethodEntry(node) ? "Entry" : "Exit",
+                        reader.getString(reader.getColumn(SliceBinaryReader.TYPE, u)));
+                assertEquals(-1, reader.getColumn(SliceBinaryReader.INDEX, u));
+                assertEquals(method, reader.getString(reader.getColumn(SliceBinaryReader.TEXT, u)));
+            } else {
+                assertEquals("Nop", reader.getString(reader.getColumn(SliceBinaryReader.TYPE, u)));
+                assertEquals(node.getIndex(), reader.getColumn(SliceBinaryReader.INDEX, u));
+                assertEquals(node.toString(), reader.getString(reader.getColumn(SliceBinaryReader.TEXT, u)));
+            }
+            List<String> expected = new ArrayList<>();
+            for (ICFGEdge<Stmt> edge : slice.getOutEdgesOf(node)) {
+                expected.add(indexer.getIndex(edge.target()) + ":" + kindNameOf(edge));
+            }
+            List<String> actual = new ArrayList<>();
+            for (int e = reader.begin(u); e < reader.end(u); e++) {
+                actual.add(reader.target(e) + ":" + reader.getKindName(reader.kindOf(e)));
+            }
+            assertEquals(expected, actual);
+            edgeCount += expected.size();
+        }
+        assertEquals(edgeCount, reader.getNumberOfEdges());
+    }
+
+    @Test
+    void testEmptySlice() throws IOException {
+        TestSlice slice = new TestSlice(Set.of(), Set.of());
+        SliceBinaryReader reader = SliceBinaryReader.open(
+                write(slice, new SimpleIndexer<>()));
+        assertEquals(0, reader.getNumberOfNodes());
+        assertEquals(0, reader.getNumberOfEdges());
+    }
+
+    @Test
+    void testRejectsNodeIdsOutOfSlice() {
+        TestSlice slice = newSlice();
+        // 编号器中已有切片外的节点，切片节点的编号不再从0开始
+        Indexer<Stmt> shifted = new SimpleIndexer<>();
+        shifted.getIndex(new Nop());
+        assertThrows(IllegalArgumentException.class, () -> write(slice, shifted));
+        // 边的终点不在切片中
+        Stmt outside = new Nop();
+        Stmt first = slice.getNodes().iterator().next();
+        slice.addEdge(normal(CFGEdge.Kind.DEF_USE, first, outside));
+        assertThrows(IllegalArgumentException.class,
+                () -> write(slice, new SimpleIndexer<>()));
+        assertFalse(new File(tempDir, "test-slice.bin").exists());
+    }
+
+    @Test
+    void testRejectsTruncatedFile() throws IOException {
+        File file = write(newSlice(), new SimpleIndexer<>());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> SliceBinaryReader.open(file));
+        Files.write(file.toPath(), new byte[]{ 'd', 'i', 'g', 'r', 'a', 'p', 'h', ' ' });
+        assertThrows(IOException.class, () -> SliceBinaryReader.open(file));
+    }
+}
@@ -0,0 +1,63 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SliceBudgetTest {
+
+    private static final List<Integer> METHODS = IntStream.range(0, 100).boxed().toList();
+
+    @Test
+    void testUnlimitedBudgetProcessesAll() {
+        BooleanSupplier timeUp = SliceBudget.UNLIMITED.startTimer();
+        assertNull(timeUp);
+        Set<String> partialReasons = new TreeSet<>();
+        List<Integer> processed = new ArrayList<>();
+        assertTrue(SliceBudget.forEachWithin(METHODS, timeUp, partialReasons,
+                processed::add));
+        assertEquals(METHODS, processed);
+        assertTrue(partialReasons.isEmpty());
+    }
+
+    @Test
+    void testTinyTimeLimitStopsEarly() {
+        BooleanSupplier timeUp = new SliceBudget(-1, -1, 1).startTimer();
+        Set<String> partialReasons = new TreeSet<>();
+        List<Integer> processed = new ArrayList<>();
+        // 每个元素模拟一次耗时超过时间预算的PDG构建
+        boolean completed = SliceBudget.forEachWithin(METHODS, timeUp,
+                partialReasons, method -> {
+                    processed.add(method);
+                    sleep(5);
+                });
+        assertFalse(completed);
+        assertEquals(Set.of(SliceBudget.TIME_LIMIT), partialReasons);
+        // 第一个元素处理完时已经超时
+        assertTrue(processed.size() <= 1);
+        assertEquals(METHODS.subList(0, processed.size()), processed);
+        // 超时后后续阶段立即停止
+        List<Integer> expanded = new ArrayList<>();
+        assertFalse(SliceBudget.forEachWithin(METHODS, timeUp, partialReasons,
+                expanded::add));
+        assertTrue(expanded.isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.junit.jupiter.api.Test;
+import pascal.taie.util.graph.Edge;
+import pascal.taie.util.graph.SimpleGraph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class SliceHasherTest {
+
+    private static final Function<Edge<Integer>, String> EDGE_LABELER = e -> "DATA";
+
+    private static final List<String> LABELS = List.of(
+            "Entry<A: void foo()>", "x = 1", "invoke send(x)", "Exit<A: void foo()>");
+
+    /**
+     * 以labels[i]为节点i的标签，节点编号加上offset，边按edges的顺序加入
+     */
+    private static SimpleGraph<Integer> graph(int offset, List<String> labels,
+                                              Map<Integer, String> nodeLabels,
+                                              int[][] edges) {
+        SimpleGraph<Integer> graph = new SimpleGraph<>();
+        for (int i = labels.size() - 1; i >= 0; i--) {
+            graph.addNode(offset + i);
+            nodeLabels.put(offset + i, labels.get(i));
+        }
+        for (int[] edge : edges) {
+            graph.addEdge(offset + edge[0], offset + edge[1]);
+        }
+        return graph;
+    }
+
+    private static String hash(SimpleGraph<Integer> graph, Map<Integer, String> labels) {
+        return SliceHasher.hashOf(graph, labels, EDGE_LABELER, 3);
+    }
+
+    private static SliceHasher.Shape shape(SimpleGraph<Integer> graph,
+                                           Map<Integer, String> labels) {
+        return SliceHasher.shapeOf(graph, labels, EDGE_LABELER);
+    }
+
+    @Test
+    void testIsomorphicSlicesAreDeduplicated() {
+        Map<Integer, String> labels1 = new HashMap<>();
+        SimpleGraph<Integer> g1 = graph(0, LABELS, labels1,
+                new int[][]{ { 0, 1 }, { 1, 2 }, { 2, 3 }, { 0, 2 } });
+        // 节点编号和加入顺序不同，结构和标签相同
+        Map<Integer, String> labels2 = new HashMap<>();
+        SimpleGraph<Integer> g2 = graph(100, LABELS, labels2,
+                new int[][]{ { 0, 2 }, { 2, 3 }, { 1, 2 }, { 0, 1 } });
+        assertEquals(hash(g1, labels1), hash(g2, labels2));
+        assertEquals(shape(g1, labels1), shape(g2, labels2));
+    }
+
+    @Test
+    void testDifferentSlicesAreKept() {
+        int[][] edges = { { 0, 1 }, { 1, 2 }, { 2, 3 } };
+        Map<Integer, String> labels = new HashMap<>();
+        SimpleGraph<Integer> g = graph(0, LABELS, labels, edges);
+        // 标签不同
+        Map<Integer, String> relabeled = new HashMap<>();
+        SimpleGraph<Integer> g1 = graph(0, List.of(LABELS.get(0), "x = 2",
+                LABELS.get(2), LABELS.get(3)), relabeled, edges);
+        assertNotEquals(hash(g, labels), hash(g1, relabeled));
+        assertNotEquals(shape(g, labels), shape(g1, relabeled));
+        // 节点和边数相同，边的方向不同
+        Map<Integer, String> reversed = new HashMap<>();
+        SimpleGraph<Integer> g2 = graph(0, LABELS, reversed,
+                new int[][]{ { 1, 0 }, { 1, 2 }, { 2, 3 } });
+        assertNotEquals(hash(g, labels), hash(g2, reversed));
+        assertNotEquals(shape(g, labels), shape(g2, reversed));
+    }
+}
@@ -0,0 +1,72 @@
+package pascal.taie.analysis.graph.icfg;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SliceManifestTest {
+
+    private static final String OPTIONS = "slice-iteration=-1,slice-attribution=false";
+
+    @TempDir
+    File tempDir;
+
+    private File file() {
+        return new File(tempDir, "slice-manifest.tsv");
+    }
+
+    private static SliceManifest manifest(String options, long hashOfFoo, long hashOfBar) {
+        SliceManifest manifest = new SliceManifest(options);
+        manifest.addMethodHash("<A: void foo()>", hashOfFoo);
+        manifest.addMethodHash("<A: int bar(int)>", hashOfBar);
+        return manifest;
+    }
+
+    @Test
+    void testRoundTrip() {
+        SliceManifest manifest = manifest(OPTIONS, 1L, -1L);
+        manifest.addSubgraph("a1-2", List.of("0.dot", "0.attr.tsv"));
+        manifest.addSubgraph("b2-1", List.of("1.dot"));
+        manifest.write(file());
+        SliceManifest read = SliceManifest.read(file());
+        assertEquals(OPTIONS, read.getOptions());
+        assertEquals(List.of("0.dot", "0.attr.tsv"), read.getFilesOf("a1-2"));
+        assertEquals(List.of("1.dot"), read.getFilesOf("b2-1"));
+        assertNull(read.getFilesOf("c3-3"));
+        assertEquals(1L, (long) read.getMethodHash("<A: void foo()>"));
+        assertEquals(-1L, (long) read.getMethodHash("<A: int bar(int)>"));
+    }
+
+    @Test
+    void testUnchangedMethodsAreReused() {
+        manifest(OPTIONS, 1L, 2L).write(file());
+        SliceManifest previous = SliceManifest.read(file());
+        assertTrue(manifest(OPTIONS, 1L, 2L).getChangedMethodsSince(previous).isEmpty());
+    }
+
+    @Test
+    void testChangedAndNewMethodsInvalidate() {
+        manifest(OPTIONS, 1L, 2L).write(file());
+        SliceManifest previous = SliceManifest.read(file());
+        SliceManifest current = manifest(OPTIONS, 1L, 3L);
+        current.addMethodHash("<B: void baz()>", 4L);
+        assertEquals(Set.of("<A: int bar(int)>", "<B: void baz()>"),
+                current.getChangedMethodsSince(previous));
+    }
+
+    @Test
+    void testMissingOrForeignFile() throws IOException {
+        assertNull(SliceManifest.read(file()));
+        Files.writeString(file().toPath(), "digraph G {}\n");
+        assertNull(SliceManifest.read(file()));
+    }
+}
@@ -0,0 +1,145 @@
+package pascal.taie.analysis.utils;
+
+import org.junit.jupiter.api.Test;
+import pascal.taie.analysis.utils.SyntheticGraphs.SyntheticCFG;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DominatorEngineTest {
+
+    private static final long SEED = 20240501L;
+
+    private static final int GRAPHS_PER_SHAPE = 20;
+
+    private final DominatorEngine lt = new LengauerTarjanEngine();
+
+    private final DominatorEngine chk = new CooperHarveyKennedyEngine();
+
+    @Test
+    void testPostDominatorsAgreeOnSyntheticGraphs() {
+        for (SyntheticCFG cfg : syntheticCFGs(new int[]{ 4, 16, 64, 512 })) {
+            // 后支配树即反向图上以exit为根的支配树
+            assertArrayEquals(lt.computeIdom(cfg.preds(), cfg.succs(), cfg.n()),
+                    chk.computeIdom(cfg.preds(), cfg.succs(), cfg.n()));
+            assertArrayEquals(lt.computeIdom(cfg.succs(), cfg.preds(), 1),
+                    chk.computeIdom(cfg.succs(), cfg.preds(), 1));
+        }
+    }
+
+    @Test
+    void testPostDominatorsMatchDataflowDefinition() {
+        for (SyntheticCFG cfg : syntheticCFGs(new int[]{ 4, 16, 48 })) {
+            int[] expected = naiveIdom(cfg.preds(), cfg.succs(), cfg.n());
+            assertArrayEquals(expected, lt.computeIdom(cfg.preds(), cfg.succs(), cfg.n()));
+            assertArrayEquals(expected, chk.computeIdom(cfg.preds(), cfg.succs(), cfg.n()));
+        }
+    }
+
+    @Test
+    void testControlDependenceAgreesAcrossModes() {
+        DominatorEngine ltMode = new AdaptiveDominatorEngine(
+                AdaptiveDominatorEngine.Mode.LT, 0, false);
+        DominatorEngine chkMode = new AdaptiveDominatorEngine(
+                AdaptiveDominatorEngine.Mode.CHK, 0, false);
+        for (SyntheticCFG cfg : syntheticCFGs(new int[]{ 16, 300 })) {
+            assertEquals(rowsOf(cfg.computeCDG(ltMode)), rowsOf(cfg.computeCDG(chkMode)));
+        }
+    }
+
+    private static List<SyntheticCFG> syntheticCFGs(int[] sizes) {
+        Random random = new Random(SEED);
+        List<SyntheticCFG> cfgs = new ArrayList<>();
+        for (SyntheticGraphs.Shape shape : SyntheticGraphs.Shape.values()) {
+            for (int size : sizes) {
+                for (int i = 0; i < GRAPHS_PER_SHAPE; i++) {
+                    cfgs.add(SyntheticGraphs.cfgOf(shape, size, random));
+                }
+            }
+        }
+        return cfgs;
+    }
+
+    /**
+     * 按定义迭代求解支配集：dom(root) = {root}，dom(v) = {v} ∪ ∩dom(p)，p为v的可达前驱；
+     * v的直接支配者是dom(v)中除v外支配集最大的节点
+     */
+    private static int[] naiveIdom(CSRGraph succs, CSRGraph preds, int root) {
+        int size = succs.getNumberOfNodes();
+        BitSet reachable = new BitSet(size);
+        List<Integer> stack = new ArrayList<>(List.of(root));
+        reachable.set(root);
+        while (!stack.isEmpty()) {
+            int u = stack.remove(stack.size() - 1);
+            for (int e = succs.begin(u); e < succs.end(u); e++) {
+                int v = succs.target(e);
+                if (!reachable.get(v)) {
+                    reachable.set(v);
+                    stack.add(v);
+                }
+            }
+        }
+        BitSet[] dom = new BitSet[size];
+        for (int v = reachable.nextSetBit(0); v >= 0; v = reachable.nextSetBit(v + 1)) {
+            dom[v] = (BitSet) reachable.clone();
+        }
+        dom[root] = new BitSet(size);
+        dom[root].set(root);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int v = reachable.nextSetBit(0); v >= 0; v = reachable.nextSetBit(v + 1)) {
+                if (v == root) {
+                    continue;
+                }
+                BitSet next = (BitSet) reachable.clone();
+                for (int e = preds.begin(v); e < preds.end(v); e++) {
+                    int p = preds.target(e);
+                    if (reachable.get(p)) {
+                        next.and(dom[p]);
+                    }
+                }
+                next.set(v);
+                if (!next.equals(dom[v])) {
+                    dom[v] = next;
+                    changed = true;
+                }
+            }
+        }
+        int[] idom = new int[size];
+        for (int v = reachable.nextSetBit(0); v >= 0; v = reachable.nextSetBit(v + 1)) {
+            if (v == root) {
+                continue;
+            }
+            int best = 0;
+            for (int d = dom[v].nextSetBit(0); d >= 0; d = dom[v].nextSetBit(d + 1)) {
+                if (d != v && (best == 0 || dom[d].cardinality() > dom[best].cardinality())) {
+                    best = d;
+                }
+            }
+            idom[v] = best;
+        }
+        return idom;
+    }
+
+    /**
+     * @return 每个节点排序后的后继，与CSR中边的顺序无关
+     */
+    private static List<List<Integer>> rowsOf(CSRGraph graph) {
+        List<List<Integer>> rows = new ArrayList<>(graph.getNumberOfNodes());
+        for (int u = 0; u < graph.getNumberOfNodes(); u++) {
+            List<Integer> row = new ArrayList<>();
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                row.add(graph.target(e));
+            }
+            row.sort(null);
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,341 @@
+package pascal.taie.analysis.utils;
+
+import org.junit.jupiter.api.Test;
+import pascal.taie.util.graph.Edge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultiSourceSlicerTest {
+
+    private static final long SEED = 20240501L;
+
+    private record IntEdge(Integer source, Integer target) implements Edge<Integer> {
+    }
+
+    /**
+     * 随机生成的依赖图，节点编号从0开始，可能有自环和重复的边
+     */
+    private record RandomGraph(List<List<IntEdge>> outEdges,
+                               List<List<IntEdge>> inEdges,
+                               List<Integer> criteria) {
+
+        private int size() {
+            return outEdges.size();
+        }
+    }
+
+    private static List<RandomGraph> randomGraphs() {
+        Random random = new Random(SEED);
+        List<RandomGraph> graphs = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int n = 1 + random.nextInt(60);
+            List<List<IntEdge>> outEdges = new ArrayList<>();
+            List<List<IntEdge>> inEdges = new ArrayList<>();
+            for (int v = 0; v < n; v++) {
+                outEdges.add(new ArrayList<>());
+                inEdges.add(new ArrayList<>());
+            }
+            for (int e = random.nextInt(2 * n + 1); e > 0; e--) {
+                IntEdge edge = new IntEdge(random.nextInt(n), random.nextInt(n));
+                outEdges.get(edge.source()).add(edge);
+                inEdges.get(edge.target()).add(edge);
+            }
+            List<Integer> criteria = new ArrayList<>();
+            for (int c = 1 + random.nextInt(6); c > 0; c--) {
+                criteria.add(random.nextInt(n));
+            }
+            graphs.add(new RandomGraph(outEdges, inEdges, criteria));
+        }
+        return graphs;
+    }
+
+    /**
+     * 多源切片之前的做法：对每个切片准则分别做一次前向和一次后向的广度优先遍历，
+     * 只扩展依赖距离小于maxDepth的节点
+     * @param nodes 输出到达的节点
+     * @param edges 输出经过的边
+     * @param criteriaOf 输出到达每个节点的切片准则的下标
+     */
+    private static void slicePerCriterion(RandomGraph graph, int maxDepth,
+                                          Set<Integer> nodes, Set<IntEdge> edges,
+                                          BitSet[] criteriaOf) {
+        for (int i = 0; i < graph.criteria().size(); i++) {
+            for (boolean isForward : new boolean[]{ true, false }) {
+                int[] depth = new int[graph.size()];
+                Arrays.fill(depth, -1);
+                int criterion = graph.criteria().get(i);
+                depth[criterion] = 0;
+                Queue<Integer> queue = new ArrayDeque<>(List.of(criterion));
+                while (!queue.isEmpty()) {
+                    int curr = queue.poll();
+                    nodes.add(curr);
+                    criteriaOf[curr].set(i);
+                    if (maxDepth != MultiSourceSlicer.UNBOUNDED && depth[curr] >= maxDepth) {
+                        continue;
+                    }
+                    List<IntEdge> currEdges = isForward ?
+                            graph.outEdges().get(curr) : graph.inEdges().get(curr);
+                    for (IntEdge edge : currEdges) {
+                        edges.add(edge);
+                        int neighbor = isForward ? edge.target() : edge.source();
+                        if (depth[neighbor] < 0) {
+                            depth[neighbor] = depth[curr] + 1;
+                            queue.add(neighbor);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 比较多源切片与逐个准则切片的节点和边，不限制依赖距离时还比较归因结果
+     */
+    private static void checkAgainstPerCriterion(int maxDepth) {
+        for (RandomGraph graph : randomGraphs()) {
+            Set<Integer> expectedNodes = new TreeSet<>();
+            Set<IntEdge> expectedEdges = new HashSet<>();
+            BitSet[] expectedCriteria = new BitSet[graph.size()];
+            for (int v = 0; v < graph.size(); v++) {
+                expectedCriteria[v] = new BitSet();
+            }
+            slicePerCriterion(graph, maxDepth, expectedNodes, expectedEdges,
+                    expectedCriteria);
+
+            MultiSourceSlicer<Integer, IntEdge> slicer = new MultiSourceSlicer<>(
+                    graph.outEdges()::get, graph.inEdges()::get,
+                    Integer::intValue, graph.size());
+            Set<IntEdge> edges = new HashSet<>();
+            SliceContext<Integer> context = slicer.slice(graph.criteria(),
+                    maxDepth, true, edges::add);
+            Set<Integer> nodes = new TreeSet<>();
+            for (int v = 0; v < graph.size(); v++) {
+                if (context.isReached(v)) {
+                    nodes.add(v);
+                }
+            }
+            assertEquals(expectedNodes, nodes);
+            assertEquals(expectedEdges, edges);
+            if (maxDepth == MultiSourceSlicer.UNBOUNDED) {
+                for (int v : nodes) {
+                    assertEquals(expectedCriteria[v], context.getCriteriaOf(v));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnboundedSliceMatchesPerCriterionSlices() {
+        checkAgainstPerCriterion(MultiSourceSlicer.UNBOUNDED);
+    }
+
+    @Test
+    void testBoundedSliceMatchesPerCriterionSlices() {
+        for (int maxDepth : new int[]{ 0, 1, 2, 3, 5, 8 }) {
+            checkAgainstPerCriterion(maxDepth);
+        }
+    }
+
+    @Test
+    void testSliceWithoutAttribution() {
+        RandomGraph graph = randomGraphs().get(0);
+        SliceContext<Integer> context = new MultiSourceSlicer<>(
+                graph.outEdges()::get, graph.inEdges()::get,
+                Integer::intValue, graph.size())
+                .slice(graph.criteria(), MultiSourceSlicer.UNBOUNDED, false, edge -> {});
+        for (int criterion : graph.criteria()) {
+            assertTrue(context.isReached(criterion));
+            assertEquals(new BitSet(), context.getCriteriaOf(criterion));
+        }
+    }
+
+    private enum Kind {
+        CONTROL, DATA, CALL, RETURN
+    }
+
+    private record TestEdge(Integer source, Integer target, Kind kind)
+            implements Edge<Integer> {
+    }
+
+    /**
+     * 由节点0到n-1和一组边构成的依赖图
+     */
+    private static class TestGraph {
+
+        private final List<List<TestEdge>> outEdges = new ArrayList<>();
+
+        private final List<List<TestEdge>> inEdges = new ArrayList<>();
+
+        private TestGraph(int n) {
+            for (int i = 0; i < n; i++) {
+                outEdges.add(new ArrayList<>());
+                inEdges.add(new ArrayList<>());
+            }
+        }
+
+        private TestGraph add(int source, int target, Kind kind) {
+            TestEdge edge = new TestEdge(source, target, kind);
+            outEdges.get(source).add(edge);
+            inEdges.get(target).add(edge);
+            return this;
+        }
+
+        private int size() {
+            return outEdges.size();
+        }
+    }
+
+    /**
+     * 调用者A和B调用同一个方法id(p, q)，只有p能到达id的出口：
+     * <pre>
+     * A: 0 entry, 1 x = ..., 2 y = ..., 3 r = id(x, y), 4 sink(r), 5 exit
+     * B: 6 entry, 7 z = ..., 8 s = id(z, z), 9 use(s), 10 exit
+     * id: 11 entry, 12 t = p, 13 exit (return t)
+     * </pre>
+     */
+    private static TestGraph sharedCallee() {
+        return new TestGraph(14)
+                .add(0, 1, Kind.CONTROL).add(0, 2, Kind.CONTROL)
+                .add(0, 3, Kind.CONTROL).add(0, 4, Kind.CONTROL)
+                .add(1, 3, Kind.DATA).add(2, 3, Kind.DATA).add(3, 4, Kind.DATA)
+                .add(6, 7, Kind.CONTROL).add(6, 8, Kind.CONTROL).add(6, 9, Kind.CONTROL)
+                .add(7, 8, Kind.DATA).add(8, 9, Kind.DATA)
+                .add(11, 12, Kind.CONTROL).add(11, 13, Kind.CONTROL)
+                .add(12, 13, Kind.DATA)
+                .add(3, 11, Kind.CALL).add(8, 11, Kind.CALL)
+                .add(13, 4, Kind.RETURN).add(13, 9, Kind.RETURN);
+    }
+
+    /**
+     * 调用点3和8上的摘要：经x或z（对应形参p）到达时返回值依赖于实参，经y（对应q）到达时不依赖
+     */
+    private static class SharedCalleeClassifier
+            implements MultiSourceSlicer.EdgeClassifier<Integer, TestEdge> {
+
+        private static final Set<Integer> REACHING_ARGS = Set.of(1, 7);
+
+        private final TestGraph graph;
+
+        private SharedCalleeClassifier(TestGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public boolean isCallEdge(TestEdge edge) {
+            return edge.kind() == Kind.CALL;
+        }
+
+        @Override
+        public boolean isReturnEdge(TestEdge edge) {
+            return edge.kind() == Kind.RETURN;
+        }
+
+        @Override
+        public boolean isSummarized(Integer node) {
+            return node == 3 || node == 8;
+        }
+
+        @Override
+        public boolean isActualIn(TestEdge edge) {
+            return edge.kind() == Kind.DATA && isSummarized(edge.target());
+        }
+
+        @Override
+        public boolean isActualOut(TestEdge edge) {
+            return edge.kind() == Kind.DATA && isSummarized(edge.source());
+        }
+
+        @Override
+        public Collection<TestEdge> getSummaryOutEdgesOf(Integer callSite, TestEdge edge) {
+            boolean activated = edge == null || edge.kind() == Kind.CONTROL
+                    || REACHING_ARGS.contains(edge.source());
+            return graph.outEdges.get(callSite)
+                    .stream()
+                    .filter(out -> activated && out.kind() == Kind.DATA)
+                    .toList();
+        }
+
+        @Override
+        public Collection<TestEdge> getSummaryInEdgesOf(Integer callSite, TestEdge edge) {
+            boolean all = edge == null || edge.kind() == Kind.CALL;
+            return graph.inEdges.get(callSite)
+                    .stream()
+                    .filter(in -> in.kind() == Kind.DATA
+                            && (all || REACHING_ARGS.contains(in.source())))
+                    .toList();
+        }
+    }
+
+    private static Set<Integer> slice(TestGraph graph, int criterion,
+                                      boolean contextSensitive) {
+        MultiSourceSlicer<Integer, TestEdge> slicer = new MultiSourceSlicer<>(
+                graph.outEdges::get, graph.inEdges::get, Integer::intValue, graph.size(),
+                contextSensitive ? new SharedCalleeClassifier(graph) : null);
+        SliceContext<Integer> context = slicer.slice(List.of(criterion),
+                MultiSourceSlicer.UNBOUNDED, false, edge -> {});
+        Set<Integer> result = new TreeSet<>();
+        for (int i = 0; i < graph.size(); i++) {
+            if (context.isReached(i)) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void testBackwardSliceOfSharedCallee() {
+        TestGraph graph = sharedCallee();
+        Set<Integer> insensitive = slice(graph, 4, false);
+        Set<Integer> sensitive = slice(graph, 4, true);
+        assertEquals(Set.of(0, 1, 2, 3, 4, 6, 7, 8, 11, 12, 13), insensitive);
+        // 不经id的入口回到调用者B，也不经摘要到达不影响返回值的实参y
+        assertEquals(Set.of(0, 1, 3, 4, 11, 12, 13), sensitive);
+        assertTrue(insensitive.containsAll(sensitive));
+    }
+
+    @Test
+    void testForwardSliceOfSharedCallee() {
+        TestGraph graph = sharedCallee();
+        Set<Integer> insensitive = slice(graph, 1, false);
+        Set<Integer> sensitive = slice(graph, 1, true);
+        assertEquals(Set.of(0, 1, 3, 4, 9, 11, 12, 13), insensitive);
+        // 不经id的出口返回到调用者B的返回点
+        assertEquals(Set.of(0, 1, 3, 4, 11, 12, 13), sensitive);
+    }
+
+    @Test
+    void testUnreachingArgumentDoesNotReachResult() {
+        TestGraph graph = sharedCallee();
+        // y不影响id的返回值，上下文敏感时前向切片不经过返回值流出边
+        assertEquals(Set.of(0, 2, 3, 11, 12, 13), slice(graph, 2, true));
+        assertTrue(slice(graph, 2, false).contains(4));
+    }
+
+    @Test
+    void testUnrealizablePathIsExcluded() {
+        TestGraph graph = sharedCallee();
+        // 上下文不敏感时，z经B的调用进入id，再从id的出口返回到A的sink(r)，
+        // 这条路径的调用和返回不匹配
+        Set<Integer> insensitive = slice(graph, 7, false);
+        assertTrue(insensitive.contains(4));
+        Set<Integer> sensitive = slice(graph, 7, true);
+        assertEquals(Set.of(6, 7, 8, 9, 11, 12, 13), sensitive);
+        // 反向同理：从A的sink(r)经id的入口不能回到B的调用点
+        assertTrue(slice(graph, 4, false).contains(8));
+        assertFalse(slice(graph, 4, true).contains(8));
+    }
+}
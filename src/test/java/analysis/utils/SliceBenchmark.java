@@ -0,0 +1,192 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.analysis.utils.SyntheticGraphs.IntEdge;
+import pascal.taie.analysis.utils.SyntheticGraphs.SyntheticCFG;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * 支配树、控制依赖和切片的基准测试，不属于单元测试，通过main方法运行，结果输出到标准输出。
+ * 所用的合成图（随机结构化CFG、深层循环嵌套、大switch、大扇出的调用图）只依赖随机种子，
+ * 不同版本之间可以直接比较。每项先预热若干轮，再测量若干轮，报告吞吐量、
+ * 当前线程的分配速率和每次操作的分配量（JMX的线程分配计数），以及期间的GC次数和时间。
+ * 所有测量都在当前线程中串行执行，以便按线程统计分配量。
+ * 真实程序上各阶段的耗时和分配量见ipdg的profile选项。
+ * 参数通过系统属性设置，例如-Dslice-bench.iterations=10，见{@link #main}
+ */
+public class SliceBenchmark {
+
+    private static final String PREFIX = "slice-bench.";
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmup;
+
+    private final int iterations;
+
+    private final long seed;
+
+    private final int syntheticSize;
+
+    private final int syntheticGraphs;
+
+    private final int fanOut;
+
+    private final int sliceDepth;
+
+    /**
+     * 防止被测操作的结果被优化掉
+     */
+    private long sink;
+
+    private SliceBenchmark() {
+        warmup = Integer.getInteger(PREFIX + "warmup", 3);
+        iterations = Math.max(Integer.getInteger(PREFIX + "iterations", 5), 1);
+        seed = Long.getLong(PREFIX + "seed", 42);
+        syntheticSize = Integer.getInteger(PREFIX + "synthetic-size", 2000);
+        syntheticGraphs = Integer.getInteger(PREFIX + "synthetic-graphs", 20);
+        fanOut = Integer.getInteger(PREFIX + "fan-out", 8);
+        sliceDepth = Integer.getInteger(PREFIX + "slice-iteration", 3);
+    }
+
+    /**
+     * 可用的系统属性（括号中为默认值）：slice-bench.warmup (3)，
+     * slice-bench.iterations (5)，slice-bench.seed (42)，
+     * slice-bench.synthetic-size (2000)，每个合成图的大致节点数，
+     * slice-bench.synthetic-graphs (20)，每种形状的合成CFG数，
+     * slice-bench.fan-out (8)，合成调用图中每个调用点的被调方法数，
+     * slice-bench.slice-iteration (3)，有界切片的依赖距离
+     */
+    public static void main(String[] args) {
+        new SliceBenchmark().run();
+    }
+
+    private void run() {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("Thread allocation counting is not supported, "
+                    + "allocation rates will be reported as 0");
+        } else {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        System.out.printf("%-36s %14s %12s %14s %8s %8s%n",
+                "Benchmark", "ops/s", "alloc MB/s", "alloc B/op", "gc.count", "gc.ms");
+        benchmarkDominators();
+        benchmarkSyntheticSlicing();
+        System.out.println("Benchmark sink: " + sink);
+    }
+
+    private void benchmarkDominators() {
+        DominatorEngine lt = new AdaptiveDominatorEngine(
+                AdaptiveDominatorEngine.Mode.LT, 0, false);
+        DominatorEngine chk = new AdaptiveDominatorEngine(
+                AdaptiveDominatorEngine.Mode.CHK, 0, false);
+        for (SyntheticGraphs.Shape shape : SyntheticGraphs.Shape.values()) {
+            Random random = new Random(seed);
+            List<SyntheticCFG> cfgs = new ArrayList<>(syntheticGraphs);
+            for (int i = 0; i < syntheticGraphs; i++) {
+                cfgs.add(SyntheticGraphs.cfgOf(shape, syntheticSize, random));
+            }
+            String name = shape.name().toLowerCase();
+            measure("dominator-lt/" + name, () -> postDominators(cfgs, lt));
+            measure("dominator-chk/" + name, () -> postDominators(cfgs, chk));
+            measure("control-dependence/" + name, () -> {
+                for (SyntheticCFG cfg : cfgs) {
+                    sink += cfg.computeCDG(AdaptiveDominatorEngine.DEFAULT)
+                            .getNumberOfEdges();
+                }
+                return cfgs.size();
+            });
+        }
+    }
+
+    private int postDominators(List<SyntheticCFG> cfgs, DominatorEngine engine) {
+        for (SyntheticCFG cfg : cfgs) {
+            sink += engine.computeIdom(cfg.preds(), cfg.succs(), cfg.n())[1];
+        }
+        return cfgs.size();
+    }
+
+    private void benchmarkSyntheticSlicing() {
+        Random random = new Random(seed);
+        int methods = Math.max(syntheticSize / 16, 2);
+        CSRGraph[] graph = SyntheticGraphs.callGraphOf(methods, 16, fanOut, random);
+        List<List<IntEdge>> outEdges = SyntheticGraphs.outEdgesOf(graph[0]);
+        List<List<IntEdge>> inEdges = SyntheticGraphs.inEdgesOf(graph[1]);
+        int nodeCount = graph[0].getNumberOfNodes();
+        MultiSourceSlicer<Integer, IntEdge> slicer = new MultiSourceSlicer<>(
+                outEdges::get, inEdges::get, Integer::intValue, nodeCount);
+        List<Integer> criteria = new ArrayList<>();
+        for (int i = 0; i < Math.max(nodeCount / 100, 1); i++) {
+            criteria.add(random.nextInt(nodeCount));
+        }
+        measure("slice-synthetic/depth-" + sliceDepth, () -> {
+            sink += slicer.slice(criteria, sliceDepth,
+                    false, e -> {}).isReached(0) ? 1 : 0;
+            return 1;
+        });
+        measure("slice-synthetic/unbounded", () -> {
+            sink += slicer.slice(criteria, MultiSourceSlicer.UNBOUNDED,
+                    false, e -> {}).isReached(0) ? 1 : 0;
+            return 1;
+        });
+        measure("slice-synthetic/attribution", () -> {
+            sink += slicer.slice(criteria, MultiSourceSlicer.UNBOUNDED,
+                    true, e -> {}).isReached(0) ? 1 : 0;
+            return 1;
+        });
+    }
+
+    /**
+     * @param op 被测操作，返回本次处理的单位数（例如图或方法的数量）
+     */
+    private void measure(String name, IntSupplier op) {
+        for (int i = 0; i < warmup; i++) {
+            op.getAsInt();
+        }
+        long units = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcCount = -gcCount();
+        long gcTime = -gcTime();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            units += op.getAsInt();
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - bytesBefore;
+        }
+        gcCount += gcCount();
+        gcTime += gcTime();
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.out.printf("%-36s %14.2f %12.2f %14.0f %8d %8d%n",
+                name, units / seconds, bytes / seconds / (1 << 20),
+                units == 0 ? 0.0 : (double) bytes / units, gcCount, gcTime);
+    }
+
+    private static long allocatedBytes() {
+        return threads.isThreadAllocatedMemorySupported() ?
+                threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+}
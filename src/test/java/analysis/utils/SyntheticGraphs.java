@@ -0,0 +1,276 @@
+package pascal.taie.analysis.utils;
+
+import pascal.taie.util.graph.Edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成图，只依赖随机种子，不需要被分析的程序。
+ * 合成CFG的节点编号与{@link PDGCalculator}相同：1为入口，n为出口，
+ * 并且已加入入口到出口的增广边，可直接用于支配树和控制依赖的计算
+ */
+public class SyntheticGraphs {
+
+    /**
+     * 结构化生成时的最大嵌套深度，超过后只生成顺序结构
+     */
+    private static final int MAX_NESTING = 64;
+
+    public enum Shape {
+        /**
+         * 随机嵌套的顺序、分支和循环结构
+         */
+        STRUCTURED,
+        /**
+         * 深层嵌套的循环
+         */
+        LOOP_NEST,
+        /**
+         * 一个分支很多的switch
+         */
+        SWITCH,
+    }
+
+    /**
+     * 合成的CFG
+     * @param succs 原图
+     * @param preds 反向图
+     * @param n 节点数，节点编号为1到n
+     */
+    public record SyntheticCFG(CSRGraph succs, CSRGraph preds, int n) {
+
+        /**
+         * @return 控制依赖图，与{@link PDGCalculator#getCDG()}相同
+         */
+        public CSRGraph computeCDG(DominatorEngine engine) {
+            PDGCalculator calculator = new PDGCalculator(preds, succs, n, engine);
+            calculator.analyse();
+            return calculator.getCDG();
+        }
+    }
+
+    /**
+     * 合成图中的边，节点编号从0开始
+     */
+    public record IntEdge(Integer source, Integer target) implements Edge<Integer> {
+    }
+
+    private final Random random;
+
+    private int[] sources = new int[16];
+
+    private int[] targets = new int[16];
+
+    private int edgeCount;
+
+    private int nodeCount;
+
+    private SyntheticGraphs(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @param size 节点数的近似值
+     */
+    public static SyntheticCFG cfgOf(Shape shape, int size, Random random) {
+        return new SyntheticGraphs(random).buildCFG(shape, Math.max(size, 4));
+    }
+
+    /**
+     * 模拟调用扇出很大的程序的依赖图，节点编号从0开始。
+     * 每个方法是长为methodSize的链，每个方法中有若干调用点，
+     * 各自调用fanOut个编号更大的方法，调用点连向被调方法的入口，
+     * 被调方法的出口连回调用点的下一个节点
+     * @return 正向图和反向图
+     */
+    public static CSRGraph[] callGraphOf(int methods, int methodSize, int fanOut,
+                                         Random random) {
+        SyntheticGraphs g = new SyntheticGraphs(random);
+        g.nodeCount = methods * methodSize;
+        for (int m = 0; m < methods; m++) {
+            int base = m * methodSize;
+            for (int i = 0; i + 1 < methodSize; i++) {
+                g.addEdge(base + i, base + i + 1);
+            }
+            if (m + 1 == methods || methodSize < 2) {
+                continue;
+            }
+            int callSites = 1 + random.nextInt(Math.max(methodSize / 4, 1));
+            for (int c = 0; c < callSites; c++) {
+                int callSite = base + random.nextInt(methodSize - 1);
+                for (int f = 0; f < fanOut; f++) {
+                    int callee = m + 1 + random.nextInt(methods - m - 1);
+                    g.addEdge(callSite, callee * methodSize);
+                    g.addEdge(callee * methodSize + methodSize - 1, callSite + 1);
+                }
+            }
+        }
+        return g.buildPair(0);
+    }
+
+    /**
+     * @return 每个节点的出边，用于{@link MultiSourceSlicer}
+     */
+    public static List<List<IntEdge>> outEdgesOf(CSRGraph graph) {
+        List<List<IntEdge>> edges = new ArrayList<>(graph.getNumberOfNodes());
+        for (int u = 0; u < graph.getNumberOfNodes(); u++) {
+            List<IntEdge> out = new ArrayList<>(graph.outDegreeOf(u));
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                out.add(new IntEdge(u, graph.target(e)));
+            }
+            edges.add(out);
+        }
+        return edges;
+    }
+
+    /**
+     * @return 以reversed中的边反向得到的入边
+     */
+    public static List<List<IntEdge>> inEdgesOf(CSRGraph reversed) {
+        List<List<IntEdge>> edges = new ArrayList<>(reversed.getNumberOfNodes());
+        for (int v = 0; v < reversed.getNumberOfNodes(); v++) {
+            List<IntEdge> in = new ArrayList<>(reversed.outDegreeOf(v));
+            for (int e = reversed.begin(v); e < reversed.end(v); e++) {
+                in.add(new IntEdge(reversed.target(e), v));
+            }
+            edges.add(in);
+        }
+        return edges;
+    }
+
+    private SyntheticCFG buildCFG(Shape shape, int size) {
+        // 编号1留给入口，出口在最后分配
+        nodeCount = 1;
+        int budget = size - 2;
+        int[] body = switch (shape) {
+            case STRUCTURED -> region(budget, 0);
+            case LOOP_NEST -> loopNest(budget);
+            case SWITCH -> switchTable(budget);
+        };
+        int exit = newNode();
+        addEdge(1, body[0]);
+        addEdge(body[1], exit);
+        addEdge(1, exit);
+        CSRGraph[] pair = buildPair(1);
+        return new SyntheticCFG(pair[0], pair[1], exit);
+    }
+
+    /**
+     * @return 区域的入口和出口
+     */
+    private int[] region(int budget, int depth) {
+        if (budget < 4 || depth >= MAX_NESTING) {
+            return chain(Math.max(budget, 1));
+        }
+        switch (random.nextInt(4)) {
+            case 0 -> {
+                int[] first = region(budget / 2, depth + 1);
+                int[] second = region(budget - budget / 2, depth + 1);
+                addEdge(first[1], second[0]);
+                return new int[]{first[0], second[1]};
+            }
+            case 1 -> {
+                int cond = newNode();
+                int half = (budget - 2) / 2;
+                int[] then = region(half, depth + 1);
+                int[] otherwise = region(budget - 2 - half, depth + 1);
+                int join = newNode();
+                addEdge(cond, then[0]);
+                addEdge(cond, otherwise[0]);
+                addEdge(then[1], join);
+                addEdge(otherwise[1], join);
+                return new int[]{cond, join};
+            }
+            case 2 -> {
+                int header = newNode();
+                int[] body = region(budget - 2, depth + 1);
+                int exit = newNode();
+                addEdge(header, body[0]);
+                addEdge(body[1], header);
+                addEdge(header, exit);
+                return new int[]{header, exit};
+            }
+            default -> {
+                int length = 1 + random.nextInt(Math.min(budget - 1, 8));
+                int[] prefix = chain(length);
+                int[] rest = region(budget - length, depth + 1);
+                addEdge(prefix[1], rest[0]);
+                return new int[]{prefix[0], rest[1]};
+            }
+        }
+    }
+
+    private int[] chain(int length) {
+        int first = newNode();
+        int last = first;
+        for (int i = 1; i < length; i++) {
+            int next = newNode();
+            addEdge(last, next);
+            last = next;
+        }
+        return new int[]{first, last};
+    }
+
+    /**
+     * 由内向外逐层生成，每层有循环头和循环出口两个节点
+     */
+    private int[] loopNest(int budget) {
+        int body = newNode();
+        int[] inner = {body, body};
+        for (int level = 0; level < (budget - 1) / 2; level++) {
+            int header = newNode();
+            int exit = newNode();
+            addEdge(header, inner[0]);
+            addEdge(inner[1], header);
+            addEdge(header, exit);
+            inner = new int[]{header, exit};
+        }
+        return inner;
+    }
+
+    private int[] switchTable(int budget) {
+        int cond = newNode();
+        int[] cases = new int[Math.max(budget - 2, 1)];
+        for (int i = 0; i < cases.length; i++) {
+            cases[i] = newNode();
+            addEdge(cond, cases[i]);
+        }
+        int join = newNode();
+        for (int c : cases) {
+            addEdge(c, join);
+        }
+        return new int[]{cond, join};
+    }
+
+    private int newNode() {
+        return ++nodeCount;
+    }
+
+    private void addEdge(int source, int target) {
+        if (edgeCount == sources.length) {
+            sources = Arrays.copyOf(sources, edgeCount * 2);
+            targets = Arrays.copyOf(targets, edgeCount * 2);
+        }
+        sources[edgeCount] = source;
+        targets[edgeCount] = target;
+        edgeCount++;
+    }
+
+    /**
+     * @param firstNode 最小的节点编号，CFG为1，其他图为0
+     * @return 正向图和反向图
+     */
+    private CSRGraph[] buildPair(int firstNode) {
+        int size = nodeCount + firstNode;
+        CSRGraph.Builder succs = new CSRGraph.Builder(size, edgeCount);
+        CSRGraph.Builder preds = new CSRGraph.Builder(size, edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            succs.addEdge(sources[i], targets[i]);
+            preds.addEdge(targets[i], sources[i]);
+        }
+        return new CSRGraph[]{succs.build(), preds.build()};
+    }
+}
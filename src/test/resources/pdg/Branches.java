@@ -0,0 +1,62 @@
+public class Branches {
+
+    private int field;
+
+    static int straight(int a, int b) {
+        int c = a + b;
+        int d = c * 2;
+        return d;
+    }
+
+    static int branch(int a) {
+        int r;
+        if (a > 0) {
+            r = a;
+        } else {
+            r = -a;
+        }
+        return r;
+    }
+
+    static int loop(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % 3 == 0) {
+                continue;
+            }
+            sum += i;
+        }
+        return sum;
+    }
+
+    static int earlyReturn(int[] xs, int key) {
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String choose(int k) {
+        String s;
+        switch (k) {
+            case 0:
+                s = "zero";
+                break;
+            case 1:
+                s = "one";
+                break;
+            default:
+                s = "many";
+        }
+        return s;
+    }
+
+    int update(int v) {
+        if (v > field) {
+            field = v;
+        }
+        return field;
+    }
+}